@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.client.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trustedanalytics.examples.hbase.model.RowValue;
+import org.trustedanalytics.examples.hbase.model.TableDescription;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of converting HBase results and descriptors to the REST model, and of writing the
+ * model as JSON, for rows of different width. Run with -prof gc to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionsBenchmark {
+
+    @Param({"1", "4"})
+    int families;
+
+    @Param({"10", "100"})
+    int qualifiers;
+
+    @Param({"16", "1024"})
+    int valueSize;
+
+    private final ConversionsService conversionsService = new ConversionsService();
+    private final OutputStream out = new SyntheticRows.DiscardingOutputStream();
+
+    private ObjectWriter rowWriter;
+    private Result result;
+    private RowValue rowValue;
+    private HTableDescriptor table;
+
+    @Setup
+    public void setUp() {
+        rowWriter = new ObjectMapper().writerFor(RowValue.class);
+        result = SyntheticRows.row(families, qualifiers, valueSize);
+        rowValue = conversionsService.constructRowValue(result);
+        table = SyntheticRows.table(families);
+    }
+
+    @Benchmark
+    public RowValue constructRowValue() {
+        return conversionsService.constructRowValue(result);
+    }
+
+    @Benchmark
+    public RowValue constructRowValueWithVersions() {
+        return conversionsService.constructRowValue(result, ValueEncoding.UTF8, true);
+    }
+
+    @Benchmark
+    public TableDescription constructTableDescription() {
+        return conversionsService.constructTableDescription(table);
+    }
+
+    @Benchmark
+    public void serializeRowValue() throws IOException {
+        rowWriter.writeValue(out, rowValue);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.hadoop.hbase.client.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trustedanalytics.examples.hbase.model.RowValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result to JSON through the model objects versus {@link RowJsonWriter}, for rows of 10, 1k and
+ * 100k cells. Compare gc.alloc.rate.norm reported by -prof gc.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int cells;
+
+    @Param({"64"})
+    int valueSize;
+
+    private final ConversionsService conversionsService = new ConversionsService();
+    private final RowJsonWriter rowJsonWriter = new RowJsonWriter();
+    private final OutputStream out = new SyntheticRows.DiscardingOutputStream();
+
+    private JsonFactory jsonFactory;
+    private ObjectWriter rowWriter;
+    private Result result;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        jsonFactory = objectMapper.getFactory();
+        rowWriter = objectMapper.writerFor(RowValue.class);
+        result = SyntheticRows.row(1, cells, valueSize);
+    }
+
+    @Benchmark
+    public void modelObjects() throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            rowWriter.writeValue(generator, conversionsService.constructRowValue(result));
+        }
+    }
+
+    @Benchmark
+    public void directWriter() throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            rowJsonWriter.write(generator, result);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds rows and table descriptors of given shape for benchmarks.
+ */
+final class SyntheticRows {
+
+    private SyntheticRows() {
+    }
+
+    /**
+     * Row with families x qualifiers cells holding random ASCII values of valueSize bytes.
+     */
+    static Result row(int families, int qualifiers, int valueSize) {
+        Random random = new Random(families * 31 + qualifiers);
+        byte[] row = Bytes.toBytes("row-0000000001");
+        List<Cell> cells = new ArrayList<>(families * qualifiers);
+        // zero padded names keep the cells in HBase order
+        for (int f = 0; f < families; f++) {
+            byte[] family = Bytes.toBytes(String.format("f%02d", f));
+            for (int q = 0; q < qualifiers; q++) {
+                byte[] qualifier = Bytes.toBytes(String.format("q%06d", q));
+                byte[] value = new byte[valueSize];
+                for (int i = 0; i < valueSize; i++) {
+                    value[i] = (byte) ('a' + random.nextInt(26));
+                }
+                cells.add(new KeyValue(row, family, qualifier, 1L, value));
+            }
+        }
+        return Result.create(cells);
+    }
+
+    static HTableDescriptor table(int families) {
+        HTableDescriptor table = new HTableDescriptor(TableName.valueOf("benchmark"));
+        for (int f = 0; f < families; f++) {
+            table.addFamily(new HColumnDescriptor(String.format("f%02d", f)));
+        }
+        return table;
+    }
+
+    static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
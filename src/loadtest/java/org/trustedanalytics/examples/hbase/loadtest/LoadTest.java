@@ -0,0 +1,339 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ClusterStatus;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.trustedanalytics.examples.hbase.Main;
+import org.trustedanalytics.examples.hbase.services.SaltedKeys;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Boots the REST service against an in-process HBase mini-cluster (or an existing cluster given
+ * with --zookeeper=host:port), preloads a table and drives a fixed rate mixed workload against
+ * the service's HTTP endpoints.
+ *
+ * Options (all --name=value):
+ * rate (requests/s), duration and warmup (seconds), threads, mix (e.g. get:70,put:20,scan:5,tables:5),
+ * rows, families, qualifiers, valueSize, pageSize (rows per scan), out (results directory),
+ * preload (put - written directly with a BufferedMutator, or import - uploaded as CSV to the bulk import endpoint),
+ * keys (random - puts overwrite preloaded rows, or sequential - puts append new rows in key order),
+ * saltBuckets (salt the table's keys over this many buckets, one region each), regions (pre-split an unsalted table),
+ * indexedValues (f0:q0 takes one of this many values, for lookup and filter operations), index (sync or async -
+ * index f0:q0 after preloading), checkIndex (true - after the run, check that every row is found by a lookup of
+ * its value), zookeeper, compare (two results directories to compare, nothing is run).
+ */
+public final class LoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    static final String TABLE = "loadtest";
+
+    static final String INDEX_TABLE = TABLE + "_index";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+
+        if (options.containsKey("compare")) {
+            String[] runs = options.get("compare").split(",");
+            LoadTestReport.compare(new File(runs[0]), new File(runs[1]), System.out);
+            return;
+        }
+
+        WorkloadSettings settings = new WorkloadSettings(options);
+        File out = new File(options.getOrDefault("out",
+            "build/loadtest/" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())));
+
+        HBaseTestingUtility miniCluster = null;
+        Configuration conf;
+        if (options.containsKey("zookeeper")) {
+            conf = HBaseConfiguration.create();
+            String[] zookeeper = options.get("zookeeper").split(":");
+            conf.set("hbase.zookeeper.quorum", zookeeper[0]);
+            conf.set("hbase.zookeeper.property.clientPort", zookeeper.length > 1 ? zookeeper[1] : "2181");
+        } else {
+            LOG.info("Starting HBase mini-cluster.");
+            miniCluster = new HBaseTestingUtility();
+            miniCluster.startMiniCluster();
+            conf = miniCluster.getConfiguration();
+        }
+
+        try {
+            boolean bulkImport = "import".equals(options.getOrDefault("preload", "put"));
+            createTable(conf, settings);
+            if (!bulkImport) {
+                preload(conf, settings);
+            }
+
+            EmbeddedWebApplicationContext context = (EmbeddedWebApplicationContext) new SpringApplicationBuilder(Main.class)
+                .properties("server.port=0")
+                .initializers(ctx -> ctx.getBeanFactory().registerSingleton(LoadTestConfig.HBASE_CONFIGURATION_BEAN, conf))
+                .run();
+            try {
+                String baseUrl = "http://localhost:" + context.getEmbeddedServletContainer().getPort() + "/api";
+                if (bulkImport) {
+                    importRows(baseUrl, settings);
+                }
+                if (settings.index != null) {
+                    createIndex(baseUrl, settings);
+                }
+                Workload workload = new Workload(baseUrl, settings);
+                Map<String, Long> writesBefore = regionWrites(conf);
+                LoadTestReport report = workload.run();
+                Map<String, Long> writes = writesDuring(conf, writesBefore);
+                report.setRegionWrites(regionsOf(writes, TABLE));
+                report.setIndexWrites(regionsOf(writes, INDEX_TABLE).values().stream().mapToLong(Long::longValue).sum());
+                report.print(System.out);
+                report.save(out);
+                LOG.info("Results saved in {}.", out.getAbsolutePath());
+                if (settings.checkIndex) {
+                    checkIndex(baseUrl, settings);
+                }
+            } finally {
+                context.close();
+            }
+        } finally {
+            if (miniCluster != null) {
+                miniCluster.shutdownMiniCluster();
+            }
+        }
+    }
+
+    private static void createTable(Configuration conf, WorkloadSettings settings) throws Exception {
+        try (Connection connection = ConnectionFactory.createConnection(conf);
+            Admin admin = connection.getAdmin()) {
+            TableName tableName = TableName.valueOf(TABLE);
+            for (TableName existing : new TableName[] {tableName, TableName.valueOf(INDEX_TABLE)}) {
+                if (admin.tableExists(existing)) {
+                    admin.disableTable(existing);
+                    admin.deleteTable(existing);
+                }
+            }
+            HTableDescriptor table = new HTableDescriptor(tableName);
+            for (int f = 0; f < settings.families; f++) {
+                table.addFamily(new HColumnDescriptor(WorkloadSettings.family(f)));
+            }
+            SaltedKeys keys = SaltedKeys.of(settings.saltBuckets);
+            if (keys.isSalted()) {
+                table.setValue(SaltedKeys.BUCKETS, Integer.toString(keys.getBuckets()));
+                admin.createTable(table, keys.splitKeys());
+            } else if (settings.regions > 1) {
+                // evenly over the preloaded keys, new sequential keys all go to the last region
+                byte[][] splits = new byte[settings.regions - 1][];
+                for (int i = 1; i < settings.regions; i++) {
+                    splits[i - 1] = Bytes.toBytes(WorkloadSettings.rowKey((long) settings.rows * i / settings.regions));
+                }
+                admin.createTable(table, splits);
+            } else {
+                admin.createTable(table);
+            }
+        }
+    }
+
+    private static void preload(Configuration conf, WorkloadSettings settings) throws Exception {
+        try (Connection connection = ConnectionFactory.createConnection(conf)) {
+            TableName tableName = TableName.valueOf(TABLE);
+            LOG.info("Preloading {} rows.", settings.rows);
+            Random random = new Random(0);
+            SaltedKeys keys = SaltedKeys.of(settings.saltBuckets);
+            try (BufferedMutator mutator = connection.getBufferedMutator(tableName)) {
+                for (int row = 0; row < settings.rows; row++) {
+                    Put put = new Put(keys.encode(WorkloadSettings.rowKey(row)));
+                    for (int f = 0; f < settings.families; f++) {
+                        for (int q = 0; q < settings.qualifiers; q++) {
+                            put.addColumn(Bytes.toBytes(WorkloadSettings.family(f)),
+                                Bytes.toBytes(WorkloadSettings.qualifier(q)),
+                                Bytes.toBytes(settings.value(random, f, q)));
+                        }
+                    }
+                    mutator.mutate(put);
+                }
+            }
+        }
+    }
+
+    /**
+     * Preload the table through the bulk import endpoint, streaming generated CSV.
+     */
+    private static void importRows(String baseUrl, WorkloadSettings settings) throws Exception {
+        LOG.info("Importing {} rows.", settings.rows);
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/tables/" + TABLE + "/import").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(64 * 1024);
+        connection.setRequestProperty("Content-Type", "text/csv");
+
+        Random random = new Random(0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            out.write("rowKey");
+            for (int f = 0; f < settings.families; f++) {
+                for (int q = 0; q < settings.qualifiers; q++) {
+                    out.write("," + WorkloadSettings.family(f) + ":" + WorkloadSettings.qualifier(q));
+                }
+            }
+            out.write('\n');
+            for (int row = 0; row < settings.rows; row++) {
+                out.write(WorkloadSettings.rowKey(row));
+                for (int f = 0; f < settings.families; f++) {
+                    for (int q = 0; q < settings.qualifiers; q++) {
+                        out.write(',');
+                        out.write(settings.value(random, f, q));
+                    }
+                }
+                out.write('\n');
+            }
+        }
+
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IllegalStateException("Import failed with status " + status);
+        }
+        connection.getInputStream().close();
+    }
+
+    /**
+     * Index the preloaded rows of f0:q0 through the service.
+     */
+    private static void createIndex(String baseUrl, WorkloadSettings settings) throws Exception {
+        LOG.info("Indexing {}.", Workload.INDEXED_COLUMN);
+        post(baseUrl + "/tables/" + TABLE + "/indexes",
+            "{\"column\":\"" + Workload.INDEXED_COLUMN + "\",\"mode\":\"" + settings.index + "\"}");
+        post(baseUrl + "/tables/" + TABLE + "/indexes/rebuild?column=" + Workload.INDEXED_COLUMN, null);
+    }
+
+    /**
+     * Every row has one of the indexed values, so the lookups of all values together have to return
+     * each row exactly once. Rows missing here lost their index entry while being written, e.g. to
+     * a lookup that found the entry before the row and deleted it as stale.
+     */
+    private static void checkIndex(String baseUrl, WorkloadSettings settings) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        int found = 0;
+        for (int value = 0; value < settings.indexedValues; value++) {
+            URL url = new URL(baseUrl + "/tables/" + TABLE + "/indexes/lookup?column=" + Workload.INDEXED_COLUMN
+                + "&value=" + WorkloadSettings.indexedValue(value) + "&limit=" + WorkloadSettings.MAX_CHECKED_ROWS);
+            try (InputStream in = url.openStream()) {
+                found += mapper.readTree(in).size();
+            }
+        }
+        if (found != settings.rows) {
+            throw new IllegalStateException("Lookups found " + found + " of " + settings.rows + " rows");
+        }
+        LOG.info("Lookups found all {} rows.", settings.rows);
+    }
+
+    private static void post(String url, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (Writer out = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
+                out.write(body);
+            }
+        }
+        int status = connection.getResponseCode();
+        if (status >= 400) {
+            throw new IllegalStateException("POST " + url + " failed with status " + status);
+        }
+        connection.getInputStream().close();
+    }
+
+    /**
+     * Write requests counted by region servers so far, per region of the test table and its index table.
+     */
+    private static Map<String, Long> regionWrites(Configuration conf) throws Exception {
+        Map<String, Long> writes = new TreeMap<>();
+        try (Connection connection = ConnectionFactory.createConnection(conf);
+            Admin admin = connection.getAdmin()) {
+            ClusterStatus status = admin.getClusterStatus();
+            for (ServerName server : status.getServers()) {
+                for (RegionLoad load : status.getLoad(server).getRegionsLoad().values()) {
+                    String region = load.getNameAsString();
+                    if (region.startsWith(TABLE + ",") || region.startsWith(INDEX_TABLE + ",")) {
+                        writes.put(load.getNameAsString(), load.getWriteRequestsCount());
+                    }
+                }
+            }
+        }
+        return writes;
+    }
+
+    private static Map<String, Long> writesDuring(Configuration conf, Map<String, Long> before) throws Exception {
+        // region servers report their load with heartbeats to the master
+        Thread.sleep(2 * conf.getLong("hbase.regionserver.msginterval", 3000));
+        Map<String, Long> writes = regionWrites(conf);
+        writes.replaceAll((region, count) -> count - before.getOrDefault(region, 0L));
+        return writes;
+    }
+
+    private static Map<String, Long> regionsOf(Map<String, Long> writes, String table) {
+        Map<String, Long> regions = new TreeMap<>();
+        writes.forEach((region, count) -> {
+            if (region.startsWith(table + ",")) {
+                regions.put(region, count);
+            }
+        });
+        return regions;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
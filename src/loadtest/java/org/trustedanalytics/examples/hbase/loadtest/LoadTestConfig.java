@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.loadtest;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionFactory;
+
+/**
+ * Points the application at the cluster started by {@link LoadTest} instead of the one
+ * described by Cloud Foundry service bindings.
+ */
+@org.springframework.context.annotation.Configuration
+public class LoadTestConfig {
+
+    static final String HBASE_CONFIGURATION_BEAN = "loadTestHBaseConfiguration";
+
+    @Autowired
+    Configuration loadTestHBaseConfiguration;
+
+    @Bean
+    @Primary
+    public HBaseConnectionFactory loadTestHBaseFactory() {
+        return () -> ConnectionFactory.createConnection(loadTestHBaseConfiguration);
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.trustedanalytics.examples.hbase.loadtest.WorkloadSettings.Operation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of a single run. Each run is saved as a summary.properties file, used to compare runs,
+ * and one HdrHistogram log per operation, which can be plotted with HistogramLogAnalyzer.
+ */
+class LoadTestReport {
+
+    private static final String SUMMARY = "summary.properties";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<Operation, Histogram> latencies;
+    private final Map<Operation, Long> errors;
+    private final long elapsedNanos;
+    private Map<String, Long> regionWrites = Collections.emptyMap();
+    private long indexWrites;
+
+    LoadTestReport(Map<Operation, Histogram> latencies, Map<Operation, Long> errors, long elapsedNanos) {
+        this.latencies = latencies;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Write requests served by each region of the table during the run.
+     */
+    void setRegionWrites(Map<String, Long> regionWrites) {
+        this.regionWrites = regionWrites;
+    }
+
+    /**
+     * Write requests served by the index table during the run.
+     */
+    void setIndexWrites(long indexWrites) {
+        this.indexWrites = indexWrites;
+    }
+
+    void print(PrintStream out) {
+        Properties summary = summary();
+        out.printf("%-8s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+            "op", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : latencies.keySet()) {
+            String op = operation.name().toLowerCase();
+            out.printf("%-8s %10s %10s %8s %10s %10s %10s %10s %10s%n", op,
+                summary.getProperty(op + ".requests"), summary.getProperty(op + ".throughput"),
+                summary.getProperty(op + ".errors"), summary.getProperty(op + ".p50"),
+                summary.getProperty(op + ".p90"), summary.getProperty(op + ".p99"),
+                summary.getProperty(op + ".p99.9"), summary.getProperty(op + ".max"));
+        }
+        if (!regionWrites.isEmpty()) {
+            out.printf("%nwrites per region (busiest region took %s%% of %s writes):%n",
+                summary.getProperty("regions.writes.maxShare"), summary.getProperty("regions.writes"));
+            regionWrites.forEach((region, writes) -> out.printf("%10d  %s%n", writes, region));
+        }
+        if (indexWrites > 0) {
+            out.printf("%nindex writes: %d (write amplification %s)%n", indexWrites,
+                summary.getProperty("writes.amplification"));
+        }
+    }
+
+    void save(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (OutputStream out = new FileOutputStream(new File(dir, SUMMARY))) {
+            summary().store(out, "Load test summary, latencies in milliseconds");
+        }
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            try (PrintStream out = new PrintStream(new File(dir, entry.getKey().name().toLowerCase() + ".hlog"))) {
+                HistogramLogWriter writer = new HistogramLogWriter(out);
+                writer.outputLogFormatVersion();
+                writer.outputLegend();
+                writer.outputIntervalHistogram(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Print metrics of two saved runs side by side, with the relative change of the second one.
+     */
+    static void compare(File baseline, File candidate, PrintStream out) throws IOException {
+        Properties before = load(baseline);
+        Properties after = load(candidate);
+
+        TreeSet<String> keys = new TreeSet<>(before.stringPropertyNames());
+        keys.addAll(after.stringPropertyNames());
+        out.printf("%-20s %12s %12s %9s%n", "metric", baseline.getName(), candidate.getName(), "change");
+        for (String key : keys) {
+            String a = before.getProperty(key, "-");
+            String b = after.getProperty(key, "-");
+            out.printf("%-20s %12s %12s %9s%n", key, a, b, change(a, b));
+        }
+    }
+
+    private Properties summary() {
+        Properties summary = new Properties();
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            String op = entry.getKey().name().toLowerCase();
+            Histogram histogram = entry.getValue();
+            summary.setProperty(op + ".requests", Long.toString(histogram.getTotalCount()));
+            summary.setProperty(op + ".throughput", String.format("%.1f", histogram.getTotalCount() / seconds));
+            summary.setProperty(op + ".errors", Long.toString(errors.get(entry.getKey())));
+            for (double percentile : PERCENTILES) {
+                summary.setProperty(op + ".p" + new DecimalFormat("0.#").format(percentile),
+                    millis(histogram.getValueAtPercentile(percentile)));
+            }
+            summary.setProperty(op + ".max", millis(histogram.getMaxValue()));
+        }
+        if (!regionWrites.isEmpty()) {
+            long total = regionWrites.values().stream().mapToLong(Long::longValue).sum();
+            long max = regionWrites.values().stream().mapToLong(Long::longValue).max().orElse(0);
+            summary.setProperty("regions", Integer.toString(regionWrites.size()));
+            summary.setProperty("regions.writes", Long.toString(total));
+            summary.setProperty("regions.writes.maxShare", String.format("%.1f", total == 0 ? 0 : 100.0 * max / total));
+            if (indexWrites > 0) {
+                // writes to the table and its index per write to the table
+                summary.setProperty("index.writes", Long.toString(indexWrites));
+                summary.setProperty("writes.amplification", String.format("%.2f", total == 0 ? 0 : (total + indexWrites) / (double) total));
+            }
+        }
+        return summary;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static String change(String before, String after) {
+        try {
+            double a = Double.parseDouble(before);
+            double b = Double.parseDouble(after);
+            return a == 0 ? "-" : String.format("%+.1f%%", (b - a) / a * 100);
+        } catch (NumberFormatException e) {
+            return "-";
+        }
+    }
+
+    private static Properties load(File dir) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(new File(dir, SUMMARY))) {
+            properties.load(in);
+        }
+        return properties;
+    }
+}
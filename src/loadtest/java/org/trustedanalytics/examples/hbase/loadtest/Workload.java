@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trustedanalytics.examples.hbase.loadtest.WorkloadSettings.Operation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model workload - requests are issued on a fixed schedule no matter how fast the service
+ * answers, and latency is measured from the moment a request was due rather than from when it
+ * was actually sent. A stalled service therefore shows up in the histograms instead of silently
+ * lowering the request rate.
+ */
+class Workload {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Workload.class);
+
+    static final String INDEXED_COLUMN = WorkloadSettings.family(0) + ":" + WorkloadSettings.qualifier(0);
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final String baseUrl;
+    private final WorkloadSettings settings;
+    private final Operation[] schedule;
+
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final AtomicLong nextRow;
+    private volatile boolean measuring;
+
+    Workload(String baseUrl, WorkloadSettings settings) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+        this.schedule = buildSchedule(settings.mix);
+        this.nextRow = new AtomicLong(settings.rows);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    LoadTestReport run() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(settings.threads);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+        Random random = new Random(1);
+
+        LOG.info("Running {} requests/s for {}s after {}s of warm-up.", settings.rate,
+            settings.durationSeconds, settings.warmupSeconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            if (!measuring && intended >= measureFrom) {
+                startMeasuring();
+            }
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            workers.execute(() -> execute(operation, intended));
+        }
+
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            LOG.warn("Requests still running after the test finished, they are not reported.");
+            workers.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - measureFrom;
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+        for (Operation operation : settings.mix.keySet()) {
+            histograms.put(operation, latencies.get(operation).getIntervalHistogram());
+            errorCounts.put(operation, errors.get(operation).get());
+        }
+        return new LoadTestReport(histograms, errorCounts, elapsed);
+    }
+
+    private void startMeasuring() {
+        for (Operation operation : Operation.values()) {
+            latencies.get(operation).reset();
+            errors.get(operation).set(0);
+        }
+        measuring = true;
+    }
+
+    private void execute(Operation operation, long intended) {
+        boolean failed;
+        try {
+            failed = !send(operation);
+        } catch (IOException e) {
+            LOG.debug("{} failed.", operation, e);
+            failed = true;
+        }
+        latencies.get(operation).recordValue(Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS));
+        if (failed) {
+            errors.get(operation).incrementAndGet();
+        }
+    }
+
+    private boolean send(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String rowKey = WorkloadSettings.rowKey(random.nextInt(settings.rows));
+        String table = "/tables/" + LoadTest.TABLE;
+
+        switch (operation) {
+            case GET:
+                return request("GET", table + "/row/" + rowKey, null);
+            case SCAN:
+                return request("GET", table + "/scan?startRow=" + rowKey + "&pageSize=" + settings.pageSize, null);
+            case TABLES:
+                return request("GET", "/tables", null);
+            case LOOKUP:
+                return request("GET", table + "/indexes/lookup?column=" + INDEXED_COLUMN + "&value="
+                    + WorkloadSettings.indexedValue(random.nextInt(settings.indexedValues)) + "&limit=" + settings.pageSize, null);
+            case FILTER:
+                // what a lookup does without the index - a scan until pageSize rows match
+                String filter = "SingleColumnValueFilter('" + WorkloadSettings.family(0) + "','" + WorkloadSettings.qualifier(0)
+                    + "',=,'binary:" + WorkloadSettings.indexedValue(random.nextInt(settings.indexedValues)) + "')";
+                return request("GET", table + "/scan?pageSize=" + settings.pageSize + "&filter="
+                    + URLEncoder.encode(filter, "UTF-8"), null);
+            case PUT:
+                // sequential keys append new rows after the preloaded ones, like timestamps do
+                String putKey = settings.sequentialKeys ? WorkloadSettings.rowKey(nextRow.getAndIncrement()) : rowKey;
+                return request("POST", table + "/row", putBody(putKey, random));
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private String putBody(String rowKey, Random random) {
+        StringBuilder body = new StringBuilder("{\"rowKey\":\"").append(rowKey).append("\",\"columnFamilies\":[");
+        for (int f = 0; f < settings.families; f++) {
+            if (f > 0) {
+                body.append(',');
+            }
+            body.append("{\"familyName\":\"").append(WorkloadSettings.family(f)).append("\",\"columnValues\":[");
+            for (int q = 0; q < settings.qualifiers; q++) {
+                if (q > 0) {
+                    body.append(',');
+                }
+                body.append("{\"column\":\"").append(WorkloadSettings.qualifier(q))
+                    .append("\",\"value\":\"").append(settings.value(random, f, q)).append("\"}");
+            }
+            body.append("]}");
+        }
+        return body.append("]}").toString();
+    }
+
+    private boolean request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+        // read the whole response, so it is included in the latency and the socket can be reused
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status < 400;
+    }
+
+    private static Operation[] buildSchedule(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Workload mix is empty");
+        }
+        Operation[] schedule = new Operation[total];
+        int i = 0;
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int n = 0; n < entry.getValue(); n++) {
+                schedule[i++] = entry.getKey();
+            }
+        }
+        return schedule;
+    }
+}
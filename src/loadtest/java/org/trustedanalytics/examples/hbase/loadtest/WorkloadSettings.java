@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+final class WorkloadSettings {
+
+    /**
+     * Rows one lookup may return (index.maxLookupRows), all rows are looked up at the end of an index check.
+     */
+    static final int MAX_CHECKED_ROWS = 1000;
+
+    final int rate;
+    final int durationSeconds;
+    final int warmupSeconds;
+    final int threads;
+    final int rows;
+    final int families;
+    final int qualifiers;
+    final int valueSize;
+    final int pageSize;
+    final int saltBuckets;
+    final int regions;
+    final boolean sequentialKeys;
+    final int indexedValues;
+    final String index;
+    final boolean checkIndex;
+    final Map<Operation, Integer> mix;
+
+    WorkloadSettings(Map<String, String> options) {
+        mix = parseMix(options.getOrDefault("mix", "get:70,put:20,scan:5,tables:5"));
+        rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        rows = Integer.parseInt(options.getOrDefault("rows", "100000"));
+        families = Integer.parseInt(options.getOrDefault("families", "1"));
+        qualifiers = Integer.parseInt(options.getOrDefault("qualifiers", "10"));
+        valueSize = Integer.parseInt(options.getOrDefault("valueSize", "100"));
+        pageSize = Integer.parseInt(options.getOrDefault("pageSize", "100"));
+        saltBuckets = Integer.parseInt(options.getOrDefault("saltBuckets", "0"));
+        regions = Integer.parseInt(options.getOrDefault("regions", "1"));
+        sequentialKeys = "sequential".equals(options.getOrDefault("keys", "random"));
+        indexedValues = Integer.parseInt(options.getOrDefault("indexedValues", "0"));
+        index = options.containsKey("index") ? options.get("index").toUpperCase() : null;
+        if ((index != null || mix.containsKey(Operation.FILTER)) && indexedValues <= 0) {
+            throw new IllegalArgumentException("Indexes and filter scans need --indexedValues");
+        }
+        if (index != null && !"SYNC".equals(index) && !"ASYNC".equals(index)) {
+            throw new IllegalArgumentException("Index has to be sync or async");
+        }
+        if (mix.containsKey(Operation.LOOKUP) && index == null) {
+            throw new IllegalArgumentException("Lookups need --index=sync or --index=async");
+        }
+        checkIndex = Boolean.parseBoolean(options.getOrDefault("checkIndex", "false"));
+        if (checkIndex && (!"SYNC".equals(index) || sequentialKeys || rows > MAX_CHECKED_ROWS)) {
+            throw new IllegalArgumentException("Index checks need --index=sync, random keys and at most "
+                + MAX_CHECKED_ROWS + " rows");
+        }
+    }
+
+    static String rowKey(long row) {
+        return String.format("row%010d", row);
+    }
+
+    /**
+     * Value of given column, the indexed column takes one of indexedValues values when set.
+     */
+    String value(Random random, int family, int qualifier) {
+        if (family == 0 && qualifier == 0 && indexedValues > 0) {
+            return indexedValue(random.nextInt(indexedValues));
+        }
+        return value(random, valueSize);
+    }
+
+    static String indexedValue(int value) {
+        return String.format("v%08d", value);
+    }
+
+    static String family(int family) {
+        return "f" + family;
+    }
+
+    static String qualifier(int qualifier) {
+        return "q" + qualifier;
+    }
+
+    static String value(Random random, int size) {
+        char[] value = new char[size];
+        for (int i = 0; i < size; i++) {
+            value[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(value);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> result = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            result.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return result;
+    }
+
+    enum Operation {
+        GET, PUT, SCAN, TABLES, LOOKUP, FILTER
+    }
+}
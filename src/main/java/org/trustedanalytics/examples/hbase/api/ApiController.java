@@ -15,24 +15,59 @@
  */
 package org.trustedanalytics.examples.hbase.api;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.hbase.client.Durability;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.trustedanalytics.examples.hbase.configs.WebConfig;
+import org.trustedanalytics.examples.hbase.model.AggregateResult;
+import org.trustedanalytics.examples.hbase.model.BatchResult;
+import org.trustedanalytics.examples.hbase.model.CounterIncrement;
+import org.trustedanalytics.examples.hbase.model.DeleteRowsRequest;
+import org.trustedanalytics.examples.hbase.model.ImportStatus;
+import org.trustedanalytics.examples.hbase.model.IndexDescription;
+import org.trustedanalytics.examples.hbase.model.IndexRebuildResult;
+import org.trustedanalytics.examples.hbase.model.MultiGetRequest;
+import org.trustedanalytics.examples.hbase.model.MutationResult;
+import org.trustedanalytics.examples.hbase.model.ReadMode;
+import org.trustedanalytics.examples.hbase.model.RowLookup;
+import org.trustedanalytics.examples.hbase.model.RowMutation;
 import org.trustedanalytics.examples.hbase.model.RowValue;
+import org.trustedanalytics.examples.hbase.model.ScanQuery;
 import org.trustedanalytics.examples.hbase.model.TableDescription;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+import org.trustedanalytics.examples.hbase.model.VersionQuery;
+import org.trustedanalytics.examples.hbase.services.BulkImportService;
+import org.trustedanalytics.examples.hbase.services.CsvRowReader;
 import org.trustedanalytics.examples.hbase.services.HBaseService;
+import org.trustedanalytics.examples.hbase.services.IncrementBatcher;
+import org.trustedanalytics.examples.hbase.services.IndexService;
+import org.trustedanalytics.examples.hbase.services.StreamingService;
 
-import javax.security.auth.login.LoginException;
-import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.trustedanalytics.examples.hbase.api.StreamingTask.streaming;
 
 @Controller
 @RequestMapping(value = "/api")
@@ -40,54 +75,410 @@ public class ApiController {
 
     private static final Logger LOG = LoggerFactory.getLogger(ApiController.class);
 
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
+
     @Autowired HBaseService hbaseService;
 
+    @Autowired StreamingService streamingService;
+
+    @Autowired BulkImportService bulkImportService;
+
+    @Autowired IndexService indexService;
+
+    @Autowired IncrementBatcher incrementBatcher;
+
+    @Autowired ObjectMapper objectMapper;
+
+    @Autowired Bulkhead adminBulkhead;
+
+    @Autowired Bulkhead readBulkhead;
+
+    @Autowired Bulkhead writeBulkhead;
+
+    @Autowired Bulkhead scanBulkhead;
+
+    @Autowired Bulkhead importBulkhead;
+
+    @Autowired WriteLimiter writeLimiter;
+
     @RequestMapping(method = RequestMethod.GET, value = "/tables")
     @ResponseBody
-    public List<TableDescription> listTables() throws IOException, LoginException {
-        LOG.info("listTables invoked.");
-        return hbaseService.listTables();
+    public DeferredResult<List<TableDescription>> listTables() {
+        LOG.debug("listTables invoked.");
+        return adminBulkhead.submit(() -> hbaseService.listTables());
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}")
     @ResponseBody
-    public TableDescription getSingleTable(@PathVariable(value = "name") String name) throws IOException, LoginException {
-        LOG.info("getSingleTable for {}.", name);
-        return hbaseService.getTableInfo(name);
+    public DeferredResult<TableDescription> getSingleTable(@PathVariable(value = "name") String name) {
+        LOG.debug("getSingleTable for {}.", name);
+        return adminBulkhead.submit(() -> hbaseService.getTableInfo(name));
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/tail")
     @ResponseBody
-    public List<RowValue> tail(@PathVariable(value = "name") String name) throws IOException, LoginException {
-        LOG.info("tail for {}.", name);
-        return hbaseService.head(name, true);
+    public DeferredResult<List<RowValue>> tail(@PathVariable(value = "name") String name, ScanQuery query) {
+        LOG.debug("tail for {}, {}.", name, query);
+        return scanBulkhead.submit(() -> hbaseService.head(name, true, query));
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/head")
     @ResponseBody
-    public List<RowValue> head(@PathVariable(value = "name") String name) throws IOException, LoginException {
-        LOG.info("head for {}.", name);
-        return hbaseService.head(name, false);
+    public DeferredResult<List<RowValue>> head(@PathVariable(value = "name") String name, ScanQuery query) {
+        LOG.debug("head for {}, {}.", name, query);
+        return scanBulkhead.submit(() -> hbaseService.head(name, false, query));
+    }
+
+    /**
+     * Scan rows of given table page by page. Pass the returned continuation token to get the next page.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/scan", produces = "application/json")
+    public ResponseEntity<StreamingResponseBody> scan(@PathVariable(value = "name") String name, ScanQuery query) {
+        LOG.debug("scan for {}, {}.", name, query);
+        return streamScan(name, query, MediaType.APPLICATION_JSON);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/scan", produces = "application/x-jackson-smile")
+    public ResponseEntity<StreamingResponseBody> scanSmile(@PathVariable(value = "name") String name, ScanQuery query) {
+        LOG.debug("scan for {}, {}.", name, query);
+        return streamScan(name, query, WebConfig.APPLICATION_SMILE);
+    }
+
+    /**
+     * Scan rows of given table with one concurrent sub-scan per region. Rows are returned in key
+     * order unless ordered=false, in which case they come as soon as any region returns them.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/scan/parallel", produces = "application/json")
+    public ResponseEntity<StreamingResponseBody> parallelScan(@PathVariable(value = "name") String name, ScanQuery query,
+        @RequestParam(value = "ordered", defaultValue = "true") boolean ordered,
+        @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        LOG.debug("parallel scan for {}, {}.", name, query);
+        return streamRegionScan(name, query, ordered, parallelism, MediaType.APPLICATION_JSON);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/scan/parallel", produces = "application/x-jackson-smile")
+    public ResponseEntity<StreamingResponseBody> parallelScanSmile(@PathVariable(value = "name") String name, ScanQuery query,
+        @RequestParam(value = "ordered", defaultValue = "true") boolean ordered,
+        @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        LOG.debug("parallel scan for {}, {}.", name, query);
+        return streamRegionScan(name, query, ordered, parallelism, WebConfig.APPLICATION_SMILE);
+    }
+
+    /**
+     * Count rows in the query's range with one concurrent sub-scan per region.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/count")
+    @ResponseBody
+    public DeferredResult<AggregateResult> count(@PathVariable(value = "name") String name, ScanQuery query,
+        @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        LOG.debug("count for {}, {}.", name, query);
+        return scanBulkhead.submit(() -> hbaseService.aggregate(name, query, null, ValueEncoding.UTF8, parallelism));
+    }
+
+    /**
+     * Count rows having given column in the query's range, and the sum, min, max and average of its values.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/aggregate")
+    @ResponseBody
+    public DeferredResult<AggregateResult> aggregate(@PathVariable(value = "name") String name, ScanQuery query,
+        @RequestParam(value = "column") String column,
+        @RequestParam(value = "encoding", defaultValue = "UTF8") ValueEncoding encoding,
+        @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        LOG.debug("aggregate of {} for {}, {}.", column, name, query);
+        return scanBulkhead.submit(() -> hbaseService.aggregate(name, query, column, encoding, parallelism));
+    }
+
+    /**
+     * Stream all rows in the query's range as NDJSON (default) or CSV.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable(value = "name") String name, ScanQuery query,
+        @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        LOG.debug("export for {}, {}, {}.", name, format, query);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name.replace(':', '_') + "." + format + "\"");
+        switch (format) {
+            case "ndjson":
+                return response.contentType(APPLICATION_NDJSON)
+                    .body(streaming(out -> streamingService.exportNdjson(name, query, out)));
+            case "csv":
+                streamingService.checkCsvExport(query);
+                return response.contentType(TEXT_CSV)
+                    .body(streaming(out -> streamingService.exportCsv(name, query, out)));
+            default:
+                throw new IllegalArgumentException("Unknown export format " + format + ", use ndjson or csv");
+        }
     }
 
     @RequestMapping(method = RequestMethod.POST, value = "/tables", consumes = "application/json")
     @ResponseStatus(HttpStatus.CREATED)
-    public void createTable(@RequestBody TableDescription tableDescription) throws LoginException, IOException {
-        LOG.info("tail for {}.", tableDescription.toString());
-        hbaseService.createTable(tableDescription);
+    public DeferredResult<Void> createTable(@RequestBody TableDescription tableDescription) {
+        LOG.debug("createTable for {}.", tableDescription);
+        return adminBulkhead.submit(() -> {
+            hbaseService.createTable(tableDescription);
+            return null;
+        });
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/indexes")
+    @ResponseBody
+    public DeferredResult<List<IndexDescription>> listIndexes(@PathVariable(value = "name") String name) {
+        LOG.debug("listIndexes for {}.", name);
+        return adminBulkhead.submit(() -> indexService.listIndexes(name));
+    }
+
+    /**
+     * Declare a secondary index of a column. Existing rows are indexed by a rebuild.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/indexes", consumes = "application/json")
+    @ResponseStatus(HttpStatus.CREATED)
+    public DeferredResult<Void> createIndex(@PathVariable(value = "name") String name, @RequestBody IndexDescription index) {
+        LOG.debug("createIndex for {}, {}.", name, index);
+        return adminBulkhead.submit(() -> {
+            indexService.createIndex(name, index);
+            return null;
+        });
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE, value = "/tables/{name}/indexes")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public DeferredResult<Void> dropIndex(@PathVariable(value = "name") String name,
+        @RequestParam(value = "column") String column) {
+        LOG.debug("dropIndex for {}, {}.", name, column);
+        return adminBulkhead.submit(() -> {
+            indexService.dropIndex(name, column);
+            return null;
+        });
+    }
+
+    /**
+     * Index all existing rows of the table, scanning regions concurrently.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/indexes/rebuild")
+    @ResponseBody
+    public DeferredResult<IndexRebuildResult> rebuildIndex(@PathVariable(value = "name") String name,
+        @RequestParam(value = "column") String column,
+        @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        LOG.debug("rebuildIndex for {}, {}.", name, column);
+        return scanBulkhead.submit(() -> indexService.rebuild(name, column, parallelism));
+    }
+
+    /**
+     * Rows whose indexed column has given value, given in valueEncoding.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/indexes/lookup")
+    @ResponseBody
+    public DeferredResult<List<RowValue>> lookup(@PathVariable(value = "name") String name,
+        @RequestParam(value = "column") String column, @RequestParam(value = "value") String value,
+        @RequestParam(value = "valueEncoding", defaultValue = "UTF8") ValueEncoding valueEncoding,
+        @RequestParam(value = "encoding", defaultValue = "UTF8") ValueEncoding encoding,
+        @RequestParam(value = "limit", required = false) Integer limit) {
+        LOG.debug("index lookup for {}, {}.", name, column);
+        return readBulkhead.submit(() -> indexService.lookup(name, column, value, valueEncoding, encoding, limit));
     }
 
     @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/row", consumes = "application/json")
     @ResponseStatus(HttpStatus.CREATED)
-    public void putRow(@PathVariable(value = "name") String name, @RequestBody RowValue rowValue) throws IOException, LoginException {
-        LOG.info("put for {}, {}.", name, rowValue);
-        hbaseService.putRow(name, rowValue);
+    public DeferredResult<Void> putRow(@PathVariable(value = "name") String name, @RequestBody RowValue rowValue) {
+        LOG.debug("put for {}, {}.", name, rowValue.getRowKey());
+        return writeLimiter.submit(name, writeBulkhead, () -> {
+            hbaseService.putRow(name, rowValue);
+            return null;
+        });
+    }
+
+    /**
+     * Delete given columns ("family" or "family:qualifier") of a row, or the whole row when none are given.
+     */
+    @RequestMapping(method = RequestMethod.DELETE, value = "/tables/{name}/row/{rowKey}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public DeferredResult<Void> deleteRow(@PathVariable(value = "name") String name, @PathVariable(value = "rowKey") String rowKey,
+        @RequestParam(value = "column", required = false) List<String> columns) {
+        LOG.debug("delete for {}, {}.", name, rowKey);
+        return writeLimiter.submit(name, writeBulkhead, () -> {
+            hbaseService.deleteRow(name, rowKey, columns);
+            return null;
+        });
     }
 
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/rows/delete", consumes = "application/json")
+    @ResponseBody
+    public DeferredResult<BatchResult> deleteRows(@PathVariable(value = "name") String name,
+        @RequestBody DeleteRowsRequest request) {
+        LOG.debug("batch delete for {}.", name);
+        return writeLimiter.submitBatch(name, writeBulkhead, () -> hbaseService.deleteRows(name, request.getRowKeys(), request.getColumns()));
+    }
+
+    /**
+     * Delete all rows whose keys start with given prefix. Runs as a scan, so it uses the scan pool.
+     */
+    @RequestMapping(method = RequestMethod.DELETE, value = "/tables/{name}/rows")
+    @ResponseBody
+    public DeferredResult<BatchResult> deleteByPrefix(@PathVariable(value = "name") String name,
+        @RequestParam(value = "prefix") String prefix) {
+        LOG.debug("delete by prefix for {}, {}.", name, prefix);
+        return writeLimiter.submitBatch(name, scanBulkhead, () -> hbaseService.deleteByPrefix(name, prefix));
+    }
+
+    /**
+     * Add amounts given as column values (decimal numbers) to counters of the row atomically.
+     * Responds with the new counter values.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/row/increment", consumes = "application/json")
+    @ResponseBody
+    public DeferredResult<RowValue> increment(@PathVariable(value = "name") String name, @RequestBody RowValue rowValue) {
+        LOG.debug("increment for {}, {}.", name, rowValue.getRowKey());
+        return writeLimiter.submit(name, writeBulkhead, () -> hbaseService.increment(name, rowValue));
+    }
+
+    /**
+     * Add many increments, possibly to many rows. Increments of the same counter sent within
+     * a short window by any clients are added up and written together.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/increments", consumes = "application/json")
+    @ResponseBody
+    public DeferredResult<BatchResult> increments(@PathVariable(value = "name") String name,
+        @RequestBody List<CounterIncrement> increments) {
+        LOG.debug("batched increments for {}, {} counters.", name, increments.size());
+        return writeLimiter.submitBatch(name, writeBulkhead, () -> {
+            try {
+                return incrementBatcher.add(name, increments).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        });
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/row/append", consumes = "application/json")
+    @ResponseBody
+    public DeferredResult<RowValue> append(@PathVariable(value = "name") String name, @RequestBody RowValue rowValue,
+        @RequestParam(value = "encoding", defaultValue = "UTF8") ValueEncoding encoding) {
+        LOG.debug("append for {}, {}.", name, rowValue.getRowKey());
+        return writeLimiter.submit(name, writeBulkhead, () -> hbaseService.append(name, rowValue, encoding));
+    }
+
+    /**
+     * Put and delete columns of one row atomically, optionally only if a condition on the current
+     * value of a column holds (check-and-put, check-and-delete or both).
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/row/mutate", consumes = "application/json")
+    @ResponseBody
+    public DeferredResult<MutationResult> mutateRow(@PathVariable(value = "name") String name,
+        @RequestBody RowMutation mutation) {
+        LOG.debug("mutate for {}, {}.", name, mutation.getRowKey());
+        return writeLimiter.submit(name, writeBulkhead, () -> hbaseService.mutateRow(name, mutation));
+    }
+
+    /**
+     * Accepts a JSON array of rows or newline delimited JSON. Rows are read from the request one
+     * by one and written through a client side buffer, so the batch is never held in memory.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/rows",
+        consumes = {"application/json", "application/x-ndjson"})
+    @ResponseBody
+    public DeferredResult<BatchResult> putRows(@PathVariable(value = "name") String name,
+        @RequestParam(value = "durability", required = false) Durability durability,
+        HttpServletRequest request) {
+        LOG.debug("batch put for {}.", name);
+        return writeLimiter.submitBatch(name, writeBulkhead, () -> {
+            try (MappingIterator<RowValue> rows = objectMapper.readerFor(RowValue.class).readValues(request.getInputStream())) {
+                return hbaseService.putRows(name, rows, durability);
+            }
+        });
+    }
+
+    /**
+     * Bulk load rows given as a JSON array, NDJSON or CSV (header line: rowKey,family:qualifier,...).
+     * Rows are written into HFiles and loaded when the upload is complete. Responds with 422
+     * when the files could not be loaded - the load can be retried under /imports/{id}/load.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/import",
+        consumes = {"application/json", "application/x-ndjson", "text/csv"})
+    @ResponseBody
+    public DeferredResult<ResponseEntity<ImportStatus>> importRows(@PathVariable(value = "name") String name,
+        @RequestParam(value = "jobId", required = false) String jobId,
+        HttpServletRequest request) {
+        LOG.debug("import for {}.", name);
+        boolean csv = MediaType.parseMediaType(request.getContentType()).includes(TEXT_CSV);
+        return importBulkhead.submit(() -> {
+            if (csv) {
+                try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+                    return importStatus(bulkImportService.importRows(name, jobId, new CsvRowReader(reader)));
+                }
+            }
+            try (MappingIterator<RowValue> rows = objectMapper.readerFor(RowValue.class).readValues(request.getInputStream())) {
+                return importStatus(bulkImportService.importRows(name, jobId, rows));
+            }
+        });
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/imports")
+    @ResponseBody
+    public List<ImportStatus> listImports() {
+        return bulkImportService.listJobs();
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/imports/{id}")
+    @ResponseBody
+    public ImportStatus getImport(@PathVariable(value = "id") String id) {
+        return bulkImportService.getStatus(id);
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "/imports/{id}/load")
+    @ResponseBody
+    public DeferredResult<ResponseEntity<ImportStatus>> retryImportLoad(@PathVariable(value = "id") String id) {
+        LOG.debug("retry import load for {}.", id);
+        return importBulkhead.submit(() -> importStatus(bulkImportService.retryLoad(id)));
+    }
+
+    /**
+     * With consistency=TIMELINE or hedge=true the row may come from a region replica, the response
+     * then says whether it is stale.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/row/{rowKey}")
     @ResponseBody
-    public RowValue getRow(@PathVariable(value = "name") String name, @PathVariable(value = "rowKey") String rowKey) throws IOException, LoginException {
-        LOG.info("get for {}, {}.", name, rowKey);
-        return hbaseService.getRow(name, rowKey);
+    public DeferredResult<RowValue> getRow(@PathVariable(value = "name") String name, @PathVariable(value = "rowKey") String rowKey,
+        @RequestParam(value = "encoding", defaultValue = "UTF8") ValueEncoding encoding, VersionQuery versions, ReadMode mode) {
+        LOG.debug("get for {}, {}.", name, rowKey);
+        return readBulkhead.submit(() -> hbaseService.getRow(name, rowKey, encoding, versions, mode));
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "/tables/{name}/rows/get", consumes = "application/json")
+    @ResponseBody
+    public DeferredResult<List<RowLookup>> getRows(@PathVariable(value = "name") String name, @RequestBody MultiGetRequest request) {
+        LOG.debug("multi get for {}.", name);
+        return readBulkhead.submit(() -> hbaseService.getRows(name, request.getRowKeys(), request.getColumns(),
+            ValueEncoding.orDefault(request.getEncoding()), new ReadMode(request.getConsistency(), request.isHedge())));
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/tables/{name}/rows")
+    @ResponseBody
+    public DeferredResult<List<RowLookup>> getRows(@PathVariable(value = "name") String name,
+        @RequestParam(value = "key") List<String> rowKeys,
+        @RequestParam(value = "column", required = false) List<String> columns,
+        @RequestParam(value = "encoding", defaultValue = "UTF8") ValueEncoding encoding, ReadMode mode) {
+        LOG.debug("multi get for {}, {} keys.", name, rowKeys.size());
+        return readBulkhead.submit(() -> hbaseService.getRows(name, rowKeys, columns, encoding, mode));
+    }
+
+    private static ResponseEntity<ImportStatus> importStatus(ImportStatus status) {
+        HttpStatus httpStatus = status.getState() == ImportStatus.State.COMPLETED ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return new ResponseEntity<>(status, httpStatus);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamScan(String name, ScanQuery query, MediaType contentType) {
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .body(streaming(out -> streamingService.writeScan(name, query, contentType, out)));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamRegionScan(String name, ScanQuery query, boolean ordered,
+        Integer parallelism, MediaType contentType) {
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .body(streaming(out -> streamingService.writeRegionScan(name, query, ordered, parallelism, contentType, out)));
     }
 }
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.api;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Runs requests of one kind on their own bounded thread pool, so servlet threads are not blocked
+ * by HBase calls and slow operations of one kind cannot starve the others. Requests that don't
+ * fit into the pool's queue are rejected right away (503), requests that take longer than the
+ * timeout are cancelled (504).
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMillis;
+    private final Counter timeouts;
+
+    public Bulkhead(String name, ThreadPoolTaskExecutor executor, long timeoutMillis, MetricRegistry metrics) {
+        this.name = name;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.timeouts = metrics.counter("bulkhead." + name + ".timeouts");
+        metrics.register("bulkhead." + name + ".active", (Gauge<Integer>) executor::getActiveCount);
+        metrics.register("bulkhead." + name + ".queued",
+            (Gauge<Integer>) () -> executor.getThreadPoolExecutor().getQueue().size());
+    }
+
+    public <T> DeferredResult<T> submit(Callable<T> task) {
+        // without a timeout of its own a request would get the servlet container's default (30 s)
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis > 0 ? timeoutMillis : -1L);
+
+        Future<?> future = executor.submit(() -> {
+            try {
+                result.setResult(task.call());
+            } catch (Exception e) {
+                result.setErrorResult(e);
+            }
+        });
+
+        result.onTimeout(() -> {
+            future.cancel(true);
+            timeouts.inc();
+            result.setErrorResult(new TimeoutException(name, timeoutMillis));
+        });
+        return result;
+    }
+
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public static class TimeoutException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public TimeoutException(String name, long timeoutMillis) {
+            super(String.format("Request did not complete in %d ms (%s)", timeoutMillis, name));
+        }
+    }
+}
@@ -16,11 +16,16 @@
 
 package org.trustedanalytics.examples.hbase.api;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import org.apache.hadoop.hbase.TableExistsException;
 import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.regionserver.NoSuchColumnFamilyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConversionException;
@@ -28,9 +33,11 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.trustedanalytics.examples.hbase.services.ServerBusy;
 
 import javax.security.auth.login.LoginException;
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.springframework.core.annotation.AnnotatedElementUtils.findMergedAnnotation;
 
@@ -39,19 +46,37 @@ public class ExceptionHandlerAdvice {
 
     private static final Logger LOG = LoggerFactory.getLogger(ExceptionHandlerAdvice.class);
 
-    @ExceptionHandler(HttpMessageConversionException.class)
+    @Autowired
+    MetricRegistry metricRegistry;
+
+    @Autowired
+    WriteLimiter writeLimiter;
+
+    @ExceptionHandler({HttpMessageConversionException.class, JsonProcessingException.class,
+        RuntimeJsonMappingException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ResponseBody
     public String handleBadRequest(Exception ex) {
         LOG.error("Handling request malformed exception", ex);
+        countError(HttpStatus.BAD_REQUEST);
         return "Request message malformed";
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public String handleIllegalArgument(IllegalArgumentException ex) {
+        LOG.error("Invalid request parameters", ex);
+        countError(HttpStatus.BAD_REQUEST);
+        return ex.getMessage();
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.FORBIDDEN)
     @ResponseBody
     public String handleLoginException(LoginException ex) {
         LOG.error("Error logging in", ex);
+        countError(HttpStatus.FORBIDDEN);
         return ex.getMessage();
     }
 
@@ -61,6 +86,7 @@ public class ExceptionHandlerAdvice {
     @ResponseBody
     public String handleTableNotFound(TableNotFoundException ex) {
         LOG.error("Table not found", ex);
+        countError(HttpStatus.NOT_FOUND);
         return ex.getMessage();
     }
 
@@ -69,15 +95,37 @@ public class ExceptionHandlerAdvice {
     @ResponseBody
     public String handleConflict(Exception ex) {
         LOG.error("Resource already exists", ex);
+        countError(HttpStatus.CONFLICT);
         return ex.getMessage();
     }
 
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
-    @ResponseBody
-    public String handleIOException(IOException ex) {
+    public ResponseEntity<String> handleIOException(IOException ex) {
+        if (ServerBusy.isBusy(ex)) {
+            LOG.warn("HBase region server busy", ex);
+            countError(HttpStatus.SERVICE_UNAVAILABLE);
+            return retryLater("HBase is busy, retry later", HttpStatus.SERVICE_UNAVAILABLE,
+                writeLimiter.getRetryAfterSeconds());
+        }
         LOG.error("Error while talking to HBase", ex);
-        return "Error while talking to HBase";
+        countError(HttpStatus.UNPROCESSABLE_ENTITY);
+        return new ResponseEntity<>("Error while talking to HBase", HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public String handleRejected(RejectedExecutionException ex) {
+        LOG.warn("Request rejected, too many requests in progress", ex);
+        countError(HttpStatus.SERVICE_UNAVAILABLE);
+        return "Too many requests in progress";
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<String> handleWriteLimitExceeded(WriteLimitExceededException ex) {
+        LOG.warn(ex.getMessage());
+        countError(HttpStatus.TOO_MANY_REQUESTS);
+        return retryLater(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS, ex.getRetryAfterSeconds());
     }
 
     @ExceptionHandler
@@ -85,11 +133,23 @@ public class ExceptionHandlerAdvice {
         LOG.error("Handling generic exception", ex);
         HttpStatus responseStatus = resolveAnnotatedResponseStatus(ex);
         if (responseStatus == null) {
+            countError(HttpStatus.INTERNAL_SERVER_ERROR);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
+        countError(responseStatus);
         return new ResponseEntity<>(ex.getMessage(), responseStatus);
     }
 
+    private static ResponseEntity<String> retryLater(String message, HttpStatus status, int retryAfterSeconds) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return new ResponseEntity<>(message, headers, status);
+    }
+
+    private void countError(HttpStatus status) {
+        metricRegistry.counter("api.errors." + status.value()).inc();
+    }
+
     private HttpStatus resolveAnnotatedResponseStatus(Throwable ex) {
         ResponseStatus responseStatus = findMergedAnnotation(ex.getClass(), ResponseStatus.class);
         if (responseStatus != null) {
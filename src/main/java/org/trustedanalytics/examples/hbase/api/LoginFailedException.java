@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import javax.security.auth.login.LoginException;
+
+/**
+ * Carries a {@link LoginException} out of streaming response bodies, which may only throw
+ * IOException.
+ */
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class LoginFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LoginFailedException(LoginException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.api;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+interface StreamingTask {
+    void writeTo(OutputStream out) throws IOException, LoginException;
+
+    static StreamingResponseBody streaming(StreamingTask task) {
+        return out -> {
+            try {
+                task.writeTo(out);
+            } catch (LoginException e) {
+                throw new LoginFailedException(e);
+            }
+        };
+    }
+}
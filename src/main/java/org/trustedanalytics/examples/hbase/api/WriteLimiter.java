@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.api;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.trustedanalytics.examples.hbase.services.ServerBusy;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the number of concurrent writes to each table, adapting the limit to how HBase copes
+ * (AIMD): every write that completes in time while the limit is in use raises it a little, a write
+ * that is slower than writes.limiter.latencyThresholdMs or fails because a region server is busy
+ * (memstore blocked during compactions, full call queue) cuts it by writes.limiter.backoffRatio.
+ * Writes over the limit are rejected right away with 429 and Retry-After, before taking a thread,
+ * instead of piling up behind the HBase client's retries.
+ */
+@Component
+public class WriteLimiter {
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Value("${writes.limiter.enabled}")
+    private boolean enabled;
+
+    @Value("${writes.limiter.initialLimit}")
+    private int initialLimit;
+
+    @Value("${writes.limiter.minLimit}")
+    private int minLimit;
+
+    @Value("${writes.limiter.maxLimit}")
+    private int maxLimit;
+
+    @Value("${writes.limiter.latencyThresholdMs}")
+    private long latencyThresholdMs;
+
+    @Value("${writes.limiter.backoffRatio}")
+    private double backoffRatio;
+
+    @Value("${writes.limiter.retryAfterSeconds}")
+    private int retryAfterSeconds;
+
+    private final ConcurrentMap<String, TableLimit> tables = new ConcurrentHashMap<>();
+    private Counter rejected;
+    private Counter busy;
+
+    @PostConstruct
+    public void init() {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalStateException("Write limits have to satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalStateException("Write limiter backoff ratio has to be between 0 and 1");
+        }
+        rejected = metrics.counter("writes.limiter.rejected");
+        busy = metrics.counter("writes.limiter.busy");
+    }
+
+    /**
+     * Write of one or a few cells, its latency drives the limit.
+     */
+    public <T> DeferredResult<T> submit(String table, Bulkhead bulkhead, Callable<T> task) {
+        return submit(table, bulkhead, true, task);
+    }
+
+    /**
+     * Batch write, only busy region servers lower the limit as its latency depends on the batch size.
+     * The task has to fail when region servers were busy, instead of reporting the rows as failed.
+     */
+    public <T> DeferredResult<T> submitBatch(String table, Bulkhead bulkhead, Callable<T> task) {
+        return submit(table, bulkhead, false, task);
+    }
+
+    int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private <T> DeferredResult<T> submit(String table, Bulkhead bulkhead, boolean timed, Callable<T> task) {
+        if (!enabled) {
+            return bulkhead.submit(task);
+        }
+
+        TableLimit limit = tables.computeIfAbsent(table, this::newLimit);
+        if (!limit.tryAcquire()) {
+            rejected.inc();
+            throw new WriteLimitExceededException(table, retryAfterSeconds);
+        }
+        // released once, either after the write or when the request ends without running it
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        };
+
+        DeferredResult<T> result;
+        try {
+            result = bulkhead.submit(() -> {
+                long start = System.nanoTime();
+                boolean overloaded = false;
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    overloaded = ServerBusy.isBusy(e);
+                    if (overloaded) {
+                        busy.inc();
+                    }
+                    throw e;
+                } finally {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    limit.completed(overloaded || timed && millis > latencyThresholdMs);
+                    release.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        result.onCompletion(release);
+        return result;
+    }
+
+    private TableLimit newLimit(String table) {
+        TableLimit limit = new TableLimit(initialLimit);
+        metrics.register("writes.limiter." + table + ".limit", (Gauge<Integer>) limit::getLimit);
+        metrics.register("writes.limiter." + table + ".inFlight", (Gauge<Integer>) limit::getInFlight);
+        return limit;
+    }
+
+    private final class TableLimit {
+        private double limit;
+        private int inFlight;
+
+        private TableLimit(int limit) {
+            this.limit = limit;
+        }
+
+        private synchronized boolean tryAcquire() {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+
+        private synchronized void release() {
+            inFlight--;
+        }
+
+        private synchronized void completed(boolean overloaded) {
+            if (overloaded) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight >= limit / 2) {
+                // about +1 per round of writes, only while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+
+        private synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        private synchronized int getInFlight() {
+            return inFlight;
+        }
+    }
+}
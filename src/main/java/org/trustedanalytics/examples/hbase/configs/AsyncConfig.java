@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.configs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.trustedanalytics.examples.hbase.api.Bulkhead;
+
+/**
+ * Separate thread pools for admin calls, point reads, writes, scans and bulk imports. Their sizes, queue
+ * lengths and timeouts are configured with bulkhead.{name}.* properties.
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Autowired
+    Environment environment;
+
+    @Autowired
+    MetricRegistry metricRegistry;
+
+    @Bean
+    public ThreadPoolTaskExecutor adminExecutor() {
+        return executor("admin");
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor readExecutor() {
+        return executor("read");
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor writeExecutor() {
+        return executor("write");
+    }
+
+    /**
+     * Also runs streaming responses, see {@link WebConfig}.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor scanExecutor() {
+        return executor("scan");
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor() {
+        return executor("import");
+    }
+
+    /**
+     * Runs per-region sub-scans of parallel scans.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor regionScanExecutor() {
+        return executor("regionScan");
+    }
+
+    /**
+     * Runs both requests of hedged reads, see {@link org.trustedanalytics.examples.hbase.services.HedgedReads}.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor hedgedReadExecutor() {
+        return executor("hedgedRead");
+    }
+
+    /**
+     * Writes entries of asynchronous secondary indexes, see {@link org.trustedanalytics.examples.hbase.services.IndexWriter}.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor indexExecutor() {
+        return executor("index");
+    }
+
+    @Bean
+    public Bulkhead adminBulkhead() {
+        return bulkhead("admin", adminExecutor());
+    }
+
+    @Bean
+    public Bulkhead readBulkhead() {
+        return bulkhead("read", readExecutor());
+    }
+
+    @Bean
+    public Bulkhead writeBulkhead() {
+        return bulkhead("write", writeExecutor());
+    }
+
+    @Bean
+    public Bulkhead scanBulkhead() {
+        return bulkhead("scan", scanExecutor());
+    }
+
+    @Bean
+    public Bulkhead importBulkhead() {
+        return bulkhead("import", importExecutor());
+    }
+
+    private ThreadPoolTaskExecutor executor(String name) {
+        int threads = environment.getRequiredProperty("bulkhead." + name + ".threads", Integer.class);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(environment.getRequiredProperty("bulkhead." + name + ".queue", Integer.class));
+        return executor;
+    }
+
+    private Bulkhead bulkhead(String name, ThreadPoolTaskExecutor executor) {
+        long timeoutMillis = environment.getRequiredProperty("bulkhead." + name + ".timeoutMs", Long.class);
+        return new Bulkhead(name, executor, timeoutMillis, metricRegistry);
+    }
+}
@@ -15,11 +15,14 @@
  */
 package org.trustedanalytics.examples.hbase.configs;
 
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.trustedanalytics.hadoop.config.client.helper.Hbase;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class HBaseConfig {
@@ -28,4 +31,10 @@ public class HBaseConfig {
     public HBaseConnectionFactory hBaseFactory() {
         return () -> Hbase.newInstance().createConnection();
     }
+
+    @Bean(destroyMethod = "close")
+    public HBaseConnectionManager hBaseConnectionManager(HBaseConnectionFactory hBaseFactory,
+        @Value("${hbase.connection.maxAgeMinutes}") long maxAgeMinutes, MetricRegistry metricRegistry) {
+        return new HBaseConnectionManager(hBaseFactory, TimeUnit.MINUTES.toMillis(maxAgeMinutes), metricRegistry);
+    }
 }
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.configs;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HBaseConnectionHealthIndicator extends AbstractHealthIndicator {
+
+    @Autowired
+    HBaseConnectionManager connectionManager;
+
+    /**
+     * Reports the state of the shared connection without forcing a connect - the connection is
+     * created lazily by the first request.
+     */
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        Exception lastFailure = connectionManager.getLastFailure();
+        if (connectionManager.isConnected()) {
+            builder.up()
+                .withDetail("state", "connected")
+                .withDetail("ageSeconds", connectionManager.getConnectionAgeMillis() / 1000)
+                .withDetail("activeLeases", connectionManager.getActiveLeases());
+        } else if (lastFailure != null) {
+            builder.down(lastFailure);
+        } else {
+            builder.up().withDetail("state", "idle");
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.configs;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.security.auth.login.LoginException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application scoped holder of the HBase {@link Connection}.
+ *
+ * HBase connections are heavyweight and thread-safe, so a single instance is created lazily and
+ * shared by all requests. Callers borrow it through a {@link Lease}, which keeps the connection
+ * open until the last borrower is done even if it has been replaced in the meantime. The
+ * connection is replaced when it gets closed or aborted, and when it gets older than the
+ * configured max age - a new connection performs a fresh Kerberos login.
+ *
+ * With Kerberos, leases also check (at most once a minute) whether the TGT of a keytab login is
+ * close to expiry and log in again if it is; the connection is replaced only when that fails.
+ * Logins from a ticket cache cannot be renewed this way and rely on the max age.
+ */
+public class HBaseConnectionManager implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HBaseConnectionManager.class);
+
+    private static final long RELOGIN_CHECK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final HBaseConnectionFactory connectionFactory;
+    private final long maxAgeMillis;
+
+    private final Counter created;
+    private final Counter reconnects;
+    private final Counter leases;
+    private final Counter failures;
+    private final Counter reloginFailures;
+
+    private final Object lock = new Object();
+    private volatile SharedConnection current;
+    private volatile Exception lastFailure;
+    private volatile long lastReloginCheck = System.currentTimeMillis();
+    private boolean closed;
+
+    public HBaseConnectionManager(HBaseConnectionFactory connectionFactory, long maxAgeMillis,
+        MetricRegistry metrics) {
+        this.connectionFactory = connectionFactory;
+        this.maxAgeMillis = maxAgeMillis;
+        this.created = metrics.counter("hbase.connection.created");
+        this.reconnects = metrics.counter("hbase.connection.reconnects");
+        this.leases = metrics.counter("hbase.connection.leases");
+        this.failures = metrics.counter("hbase.connection.failures");
+        this.reloginFailures = metrics.counter("hbase.connection.reloginFailures");
+    }
+
+    /**
+     * Borrow the shared connection, connecting (or reconnecting) first if needed.
+     * The lease must be closed once the caller is done with the connection.
+     */
+    public Lease lease() throws IOException, LoginException {
+        SharedConnection shared = current;
+        if (shared != null && !relogin()) {
+            shared = reconnect(shared);
+        }
+        while (true) {
+            if (shared == null || !shared.isUsable()) {
+                shared = reconnect(shared);
+            }
+            if (shared.retain()) {
+                leases.inc();
+                return new Lease(shared);
+            }
+            shared = current;
+        }
+    }
+
+    public boolean isConnected() {
+        SharedConnection shared = current;
+        return shared != null && shared.isUsable();
+    }
+
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    public long getConnectionAgeMillis() {
+        SharedConnection shared = current;
+        return shared == null ? 0 : System.currentTimeMillis() - shared.createdAt;
+    }
+
+    public int getActiveLeases() {
+        SharedConnection shared = current;
+        // one reference is held by the manager itself
+        return shared == null ? 0 : Math.max(0, shared.references.get() - 1);
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            if (current != null) {
+                current.release();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Renews the Kerberos login if its TGT is about to expire, returns false if that failed.
+     */
+    private boolean relogin() {
+        long now = System.currentTimeMillis();
+        if (now - lastReloginCheck < RELOGIN_CHECK_MILLIS || !UserGroupInformation.isSecurityEnabled()) {
+            return true;
+        }
+        lastReloginCheck = now;
+        try {
+            UserGroupInformation.getLoginUser().checkTGTAndReloginFromKeytab();
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Kerberos relogin failed, the HBase connection will be replaced.", e);
+            reloginFailures.inc();
+            return false;
+        }
+    }
+
+    private SharedConnection reconnect(SharedConnection stale) throws IOException, LoginException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("HBase connection manager has been closed");
+            }
+            if (current != stale && current != null && current.isUsable()) {
+                return current;
+            }
+
+            Connection connection;
+            try {
+                connection = connectionFactory.connect();
+            } catch (IOException | LoginException | RuntimeException e) {
+                failures.inc();
+                lastFailure = e;
+                throw e;
+            }
+
+            if (current != null) {
+                LOG.info("Replacing HBase connection created {} seconds ago.",
+                    TimeUnit.MILLISECONDS.toSeconds(getConnectionAgeMillis()));
+                reconnects.inc();
+                current.release();
+            }
+            created.inc();
+            lastFailure = null;
+            current = new SharedConnection(connection);
+            return current;
+        }
+    }
+
+    private final class SharedConnection {
+        private final Connection connection;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private SharedConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        private boolean isUsable() {
+            return !connection.isClosed() && !connection.isAborted()
+                && (maxAgeMillis <= 0 || System.currentTimeMillis() - createdAt < maxAgeMillis);
+        }
+
+        private boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count <= 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    connection.close();
+                } catch (IOException e) {
+                    LOG.warn("Error while closing HBase connection.", e);
+                }
+            }
+        }
+    }
+
+    public static final class Lease implements AutoCloseable {
+        private final SharedConnection shared;
+        private boolean released;
+
+        private Lease(SharedConnection shared) {
+            this.shared = shared;
+        }
+
+        public Connection getConnection() {
+            return shared.connection;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                shared.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.configs;
+
+import com.codahale.metrics.MetricRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.exporter.MetricsServlet;
+import org.springframework.boot.context.embedded.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes all metrics of the application's registry (request and HBase operation timers,
+ * counters, cache and pool gauges) in Prometheus text format under /prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public CollectorRegistry collectorRegistry(MetricRegistry metricRegistry) {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        collectorRegistry.register(new DropwizardExports(metricRegistry));
+        return collectorRegistry;
+    }
+
+    @Bean
+    public ServletRegistrationBean prometheusServlet(CollectorRegistry collectorRegistry) {
+        return new ServletRegistrationBean(new MetricsServlet(collectorRegistry), "/prometheus");
+    }
+}
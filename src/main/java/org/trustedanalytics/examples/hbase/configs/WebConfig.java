@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.configs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.trustedanalytics.examples.hbase.api.EndpointMetricsInterceptor;
+
+import java.util.Collections;
+import java.util.List;
+
+@Configuration
+public class WebConfig extends WebMvcConfigurerAdapter {
+
+    /**
+     * Binary JSON, smaller and cheaper to produce and parse than text JSON.
+     */
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Autowired
+    ThreadPoolTaskExecutor scanExecutor;
+
+    @Autowired
+    MetricRegistry metricRegistry;
+
+    @Value("${bulkhead.scan.timeoutMs}")
+    private long scanTimeoutMillis;
+
+    /**
+     * Streaming responses are written by the scan pool instead of an unbounded one.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(scanExecutor);
+        configurer.setDefaultTimeout(scanTimeoutMillis > 0 ? scanTimeoutMillis : -1);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new EndpointMetricsInterceptor(metricRegistry)).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2HttpMessageConverter smileConverter =
+            new MappingJackson2HttpMessageConverter(new ObjectMapper(new SmileFactory()));
+        smileConverter.setSupportedMediaTypes(Collections.singletonList(APPLICATION_SMILE));
+        converters.add(smileConverter);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Row count and statistics of a numeric column over a range of rows. When some regions could
+ * not be scanned the numbers cover the other regions only and the failed ones are listed.
+ */
+public class AggregateResult {
+
+    private final long rows;
+    private final Long values;
+    private final Long skipped;
+    private final Number sum;
+    private final Number min;
+    private final Number max;
+    private final Double avg;
+    private final List<RegionScanProgress> failedRegions;
+
+    public AggregateResult() {
+        this.rows = 0;
+        this.values = null;
+        this.skipped = null;
+        this.sum = null;
+        this.min = null;
+        this.max = null;
+        this.avg = null;
+        this.failedRegions = null;
+    }
+
+    public AggregateResult(long rows, Long values, Long skipped, Number sum, Number min, Number max, Double avg,
+        List<RegionScanProgress> failedRegions) {
+        this.rows = rows;
+        this.values = values;
+        this.skipped = skipped;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+        this.failedRegions = failedRegions;
+    }
+
+    /**
+     * Number of rows in the range, or with the column when one was given.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Number of values of the column that were aggregated.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getValues() {
+        return values;
+    }
+
+    /**
+     * Number of values of the column that are not numbers in the given encoding.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Integral when all values are integers, decimal otherwise. Sum, min, max and avg are
+     * missing when there were no values.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Number getSum() {
+        return sum;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Number getMin() {
+        return min;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Number getMax() {
+        return max;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Double getAvg() {
+        return avg;
+    }
+
+    public boolean isComplete() {
+        return failedRegions == null || failedRegions.isEmpty();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<RegionScanProgress> getFailedRegions() {
+        return failedRegions;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateResult{" +
+            "rows=" + rows +
+            ", values=" + values +
+            ", skipped=" + skipped +
+            ", sum=" + sum +
+            ", min=" + min +
+            ", max=" + max +
+            ", avg=" + avg +
+            ", failedRegions=" + failedRegions +
+            '}';
+    }
+}
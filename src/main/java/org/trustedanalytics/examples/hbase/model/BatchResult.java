@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import java.util.List;
+
+public class BatchResult {
+
+    private final long succeeded;
+    private final List<RowFailure> failures;
+
+    public BatchResult() {
+        this.succeeded = 0;
+        this.failures = null;
+    }
+
+    public BatchResult(long succeeded, List<RowFailure> failures) {
+        this.succeeded = succeeded;
+        this.failures = failures;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public List<RowFailure> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+            "succeeded=" + succeeded +
+            ", failures=" + failures +
+            '}';
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Storage settings of a column family. Settings that are not given keep HBase defaults.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnFamilyDescription {
+
+    private final String name;
+    private final String compression;
+    private final String bloomFilter;
+    private final String dataBlockEncoding;
+    private final Integer blockSize;
+    private final Boolean blockCache;
+    private final Boolean inMemory;
+    private final Integer maxVersions;
+    private final Integer ttl;
+
+    public ColumnFamilyDescription() {
+        this(null, null, null, null, null, null, null, null, null);
+    }
+
+    public ColumnFamilyDescription(String name, String compression, String bloomFilter, String dataBlockEncoding,
+        Integer blockSize, Boolean blockCache, Boolean inMemory, Integer maxVersions, Integer ttl) {
+        this.name = name;
+        this.compression = compression;
+        this.bloomFilter = bloomFilter;
+        this.dataBlockEncoding = dataBlockEncoding;
+        this.blockSize = blockSize;
+        this.blockCache = blockCache;
+        this.inMemory = inMemory;
+        this.maxVersions = maxVersions;
+        this.ttl = ttl;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Compression of HFiles: NONE, GZ, SNAPPY, LZ4, ZSTD... The codec has to be available on region servers.
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * Bloom filter: NONE, ROW or ROWCOL.
+     */
+    public String getBloomFilter() {
+        return bloomFilter;
+    }
+
+    /**
+     * Encoding of data blocks: NONE, PREFIX, DIFF, FAST_DIFF, PREFIX_TREE.
+     */
+    public String getDataBlockEncoding() {
+        return dataBlockEncoding;
+    }
+
+    /**
+     * Size of HFile blocks in bytes.
+     */
+    public Integer getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Whether blocks read from this family are kept in the block cache.
+     */
+    public Boolean getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Whether blocks of this family get priority in the block cache.
+     */
+    public Boolean getInMemory() {
+        return inMemory;
+    }
+
+    public Integer getMaxVersions() {
+        return maxVersions;
+    }
+
+    /**
+     * Time to live of cells in seconds, forever when not given.
+     */
+    public Integer getTtl() {
+        return ttl;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnFamilyDescription{" +
+            "name='" + name + '\'' +
+            ", compression='" + compression + '\'' +
+            ", bloomFilter='" + bloomFilter + '\'' +
+            ", dataBlockEncoding='" + dataBlockEncoding + '\'' +
+            ", blockSize=" + blockSize +
+            ", blockCache=" + blockCache +
+            ", inMemory=" + inMemory +
+            ", maxVersions=" + maxVersions +
+            ", ttl=" + ttl +
+            '}';
+    }
+}
@@ -15,18 +15,41 @@
  */
 package org.trustedanalytics.examples.hbase.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ColumnValue {
     private final String column;
     private final String value;
+    private final ValueEncoding encoding;
+    private final Long timestamp;
 
     public ColumnValue() {
         this.column = null;
         this.value = null;
+        this.encoding = null;
+        this.timestamp = null;
     }
 
     public ColumnValue(String column, String value) {
         this.column = column;
         this.value = value;
+        this.encoding = null;
+        this.timestamp = null;
+    }
+
+    public ColumnValue(String column, String value, ValueEncoding encoding) {
+        this.column = column;
+        this.value = value;
+        this.encoding = encoding;
+        this.timestamp = null;
+    }
+
+    public ColumnValue(String column, String value, ValueEncoding encoding, Long timestamp) {
+        this.column = column;
+        this.value = value;
+        this.encoding = encoding;
+        this.timestamp = timestamp;
     }
 
     public String getValue() {
@@ -37,11 +60,27 @@ public class ColumnValue {
         return column;
     }
 
+    /**
+     * Encoding of the value, UTF-8 text when not given.
+     */
+    public ValueEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Version of the cell in milliseconds since epoch, current time of the region server when not given.
+     */
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
     @Override
     public String toString() {
         return "ColumnValue{" +
             "column='" + column + '\'' +
             ", value='" + value + '\'' +
+            ", encoding=" + encoding +
+            ", timestamp=" + timestamp +
             '}';
     }
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+public class CounterIncrement {
+
+    private final String rowKey;
+    private final String column;
+    private final long amount;
+
+    public CounterIncrement() {
+        this.rowKey = null;
+        this.column = null;
+        this.amount = 0;
+    }
+
+    public CounterIncrement(String rowKey, String column, long amount) {
+        this.rowKey = rowKey;
+        this.column = column;
+        this.amount = amount;
+    }
+
+    public String getRowKey() {
+        return rowKey;
+    }
+
+    /**
+     * Counter column, "family:qualifier".
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return "CounterIncrement{" +
+            "rowKey='" + rowKey + '\'' +
+            ", column='" + column + '\'' +
+            ", amount=" + amount +
+            '}';
+    }
+}
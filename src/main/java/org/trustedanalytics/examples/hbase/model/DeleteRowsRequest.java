@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import java.util.List;
+
+public class DeleteRowsRequest {
+
+    private final List<String> rowKeys;
+    private final List<String> columns;
+
+    public DeleteRowsRequest() {
+        this.rowKeys = null;
+        this.columns = null;
+    }
+
+    public DeleteRowsRequest(List<String> rowKeys, List<String> columns) {
+        this.rowKeys = rowKeys;
+        this.columns = columns;
+    }
+
+    public List<String> getRowKeys() {
+        return rowKeys;
+    }
+
+    /**
+     * Columns to delete from each row, each either "family" or "family:qualifier".
+     * Whole rows are deleted when not given.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteRowsRequest{" +
+            "rowKeys=" + rowKeys +
+            ", columns=" + columns +
+            '}';
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import java.util.List;
+
+/**
+ * Progress of a bulk import job.
+ */
+public class ImportStatus {
+
+    public enum State {
+        /** Records are being read and written into HFiles. */
+        WRITING,
+        /** HFiles are being handed to region servers. */
+        LOADING,
+        COMPLETED,
+        /** Records could not be read or written, the upload has to be sent again. */
+        FAILED,
+        /** HFiles are written but could not be loaded, the load can be retried. */
+        LOAD_FAILED
+    }
+
+    private final String id;
+    private final String tableName;
+    private final State state;
+    private final long records;
+    private final long cells;
+    private final long bytes;
+    private final int hfiles;
+    private final long rejected;
+    private final List<RowFailure> failures;
+    private final String error;
+
+    public ImportStatus() {
+        this.id = null;
+        this.tableName = null;
+        this.state = null;
+        this.records = 0;
+        this.cells = 0;
+        this.bytes = 0;
+        this.hfiles = 0;
+        this.rejected = 0;
+        this.failures = null;
+        this.error = null;
+    }
+
+    public ImportStatus(String id, String tableName, State state, long records, long cells, long bytes, int hfiles,
+        long rejected, List<RowFailure> failures, String error) {
+        this.id = id;
+        this.tableName = tableName;
+        this.state = state;
+        this.records = records;
+        this.cells = cells;
+        this.bytes = bytes;
+        this.hfiles = hfiles;
+        this.rejected = rejected;
+        this.failures = failures;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getCells() {
+        return cells;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getHfiles() {
+        return hfiles;
+    }
+
+    /**
+     * Number of records skipped because they were not valid.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * First few rejected records with the reason.
+     */
+    public List<RowFailure> getFailures() {
+        return failures;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportStatus{" +
+            "id='" + id + '\'' +
+            ", tableName='" + tableName + '\'' +
+            ", state=" + state +
+            ", records=" + records +
+            ", cells=" + cells +
+            ", bytes=" + bytes +
+            ", hfiles=" + hfiles +
+            ", rejected=" + rejected +
+            ", error='" + error + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+/**
+ * Secondary index of a column, kept in the companion table {table}_index. Index entries map
+ * values of the column to keys of the rows holding them.
+ */
+public class IndexDescription {
+
+    public enum Mode {
+        SYNC, ASYNC
+    }
+
+    private final String column;
+    private final Mode mode;
+
+    public IndexDescription() {
+        this.column = null;
+        this.mode = null;
+    }
+
+    public IndexDescription(String column, Mode mode) {
+        this.column = column;
+        this.mode = mode;
+    }
+
+    /**
+     * Indexed column, family:qualifier.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * SYNC (default) writes index entries before the rows are written, ASYNC in the background.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexDescription{" +
+            "column='" + column + '\'' +
+            ", mode=" + mode +
+            '}';
+    }
+}
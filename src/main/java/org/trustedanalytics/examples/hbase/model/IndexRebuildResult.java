@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Outcome of rebuilding an index. Rows of failed regions are not indexed, run the rebuild again.
+ */
+public class IndexRebuildResult {
+
+    private final long entries;
+    private final List<RegionScanProgress> failedRegions;
+
+    public IndexRebuildResult() {
+        this.entries = 0;
+        this.failedRegions = null;
+    }
+
+    public IndexRebuildResult(long entries, List<RegionScanProgress> failedRegions) {
+        this.entries = entries;
+        this.failedRegions = failedRegions;
+    }
+
+    /**
+     * Number of index entries written, one per row holding the column.
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    public boolean isComplete() {
+        return failedRegions == null || failedRegions.isEmpty();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<RegionScanProgress> getFailedRegions() {
+        return failedRegions;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexRebuildResult{" +
+            "entries=" + entries +
+            ", failedRegions=" + failedRegions +
+            '}';
+    }
+}
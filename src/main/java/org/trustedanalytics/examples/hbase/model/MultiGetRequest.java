@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import org.apache.hadoop.hbase.client.Consistency;
+
+import java.util.List;
+
+public class MultiGetRequest {
+
+    private final List<String> rowKeys;
+    private final List<String> columns;
+    private final ValueEncoding encoding;
+    private final Consistency consistency;
+    private final boolean hedge;
+
+    public MultiGetRequest() {
+        this.rowKeys = null;
+        this.columns = null;
+        this.encoding = null;
+        this.consistency = null;
+        this.hedge = false;
+    }
+
+    public MultiGetRequest(List<String> rowKeys, List<String> columns, ValueEncoding encoding) {
+        this(rowKeys, columns, encoding, null, false);
+    }
+
+    public MultiGetRequest(List<String> rowKeys, List<String> columns, ValueEncoding encoding,
+        Consistency consistency, boolean hedge) {
+        this.rowKeys = rowKeys;
+        this.columns = columns;
+        this.encoding = encoding;
+        this.consistency = consistency;
+        this.hedge = hedge;
+    }
+
+    public List<String> getRowKeys() {
+        return rowKeys;
+    }
+
+    /**
+     * Optional projection, each entry is either "family" or "family:qualifier".
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public ValueEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * STRONG (default) or TIMELINE, see {@link ReadMode}.
+     */
+    public Consistency getConsistency() {
+        return consistency;
+    }
+
+    public boolean isHedge() {
+        return hedge;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiGetRequest{" +
+            "rowKeys=" + rowKeys +
+            ", columns=" + columns +
+            ", encoding=" + encoding +
+            ", consistency=" + consistency +
+            ", hedge=" + hedge +
+            '}';
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+/**
+ * Condition of a check-and-mutate operation, checked against the latest value of one column.
+ * The comparison reads as "value op stored value", e.g. LESS passes when the given value is
+ * less than the stored one. A missing value means the column must not exist.
+ */
+public class MutationCondition {
+
+    public enum Operator {
+        LESS, LESS_OR_EQUAL, EQUAL, NOT_EQUAL, GREATER_OR_EQUAL, GREATER
+    }
+
+    private final String column;
+    private final Operator operator;
+    private final String value;
+    private final ValueEncoding encoding;
+
+    public MutationCondition() {
+        this.column = null;
+        this.operator = null;
+        this.value = null;
+        this.encoding = null;
+    }
+
+    public MutationCondition(String column, Operator operator, String value, ValueEncoding encoding) {
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Column to check, "family:qualifier".
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * EQUAL when not given.
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public ValueEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public String toString() {
+        return "MutationCondition{" +
+            "column='" + column + '\'' +
+            ", operator=" + operator +
+            ", value='" + value + '\'' +
+            ", encoding=" + encoding +
+            '}';
+    }
+}
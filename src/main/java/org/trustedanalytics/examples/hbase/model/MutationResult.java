@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+public class MutationResult {
+
+    private final boolean applied;
+
+    public MutationResult() {
+        this.applied = false;
+    }
+
+    public MutationResult(boolean applied) {
+        this.applied = applied;
+    }
+
+    /**
+     * False when the condition didn't hold and nothing was changed.
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    @Override
+    public String toString() {
+        return "MutationResult{" +
+            "applied=" + applied +
+            '}';
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import java.util.List;
+
+/**
+ * How a new table is split into regions up front, so writes are spread over region servers
+ * from the start. Either explicit split keys or a number of regions and an algorithm.
+ */
+public class PreSplit {
+
+    public enum Algorithm {
+        /**
+         * Row keys are hex strings, e.g. hashes.
+         */
+        HEX,
+        /**
+         * Row keys are random bytes.
+         */
+        UNIFORM,
+        /**
+         * Split keys are taken evenly from sorted sample keys.
+         */
+        SAMPLE
+    }
+
+    private final List<String> splitKeys;
+    private final Algorithm algorithm;
+    private final Integer regions;
+    private final List<String> sampleKeys;
+
+    public PreSplit() {
+        this.splitKeys = null;
+        this.algorithm = null;
+        this.regions = null;
+        this.sampleKeys = null;
+    }
+
+    public PreSplit(List<String> splitKeys, Algorithm algorithm, Integer regions, List<String> sampleKeys) {
+        this.splitKeys = splitKeys;
+        this.algorithm = algorithm;
+        this.regions = regions;
+        this.sampleKeys = sampleKeys;
+    }
+
+    /**
+     * First row keys of all regions but the first one.
+     */
+    public List<String> getSplitKeys() {
+        return splitKeys;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public Integer getRegions() {
+        return regions;
+    }
+
+    /**
+     * Keys representative of the data to be written, for the SAMPLE algorithm.
+     */
+    public List<String> getSampleKeys() {
+        return sampleKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "PreSplit{" +
+            "splitKeys=" + splitKeys +
+            ", algorithm=" + algorithm +
+            ", regions=" + regions +
+            ", sampleKeys=" + (sampleKeys == null ? null : sampleKeys.size() + " keys") +
+            '}';
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import org.apache.hadoop.hbase.client.Consistency;
+
+/**
+ * How point reads are served, bound from request parameters. By default rows are read only from
+ * the primary replica of their region and are never stale.
+ */
+public class ReadMode {
+
+    private Consistency consistency = Consistency.STRONG;
+    private boolean hedge;
+
+    public ReadMode() {
+    }
+
+    public ReadMode(Consistency consistency, boolean hedge) {
+        this.consistency = consistency == null ? Consistency.STRONG : consistency;
+        this.hedge = hedge;
+    }
+
+    /**
+     * TIMELINE lets the HBase client fall back to secondary region replicas when the primary does
+     * not answer in time (hbase.client.primaryCallTimeout.get). Needs tables with region replication.
+     */
+    public Consistency getConsistency() {
+        return consistency;
+    }
+
+    public void setConsistency(Consistency consistency) {
+        this.consistency = consistency == null ? Consistency.STRONG : consistency;
+    }
+
+    /**
+     * Send a second, timeline consistent read when the first is slower than usual, and answer
+     * with whichever completes first.
+     */
+    public boolean isHedge() {
+        return hedge;
+    }
+
+    public void setHedge(boolean hedge) {
+        this.hedge = hedge;
+    }
+
+    /**
+     * Whether rows may come from a secondary replica, in which case responses say if they are stale.
+     */
+    public boolean isTimeline() {
+        return consistency == Consistency.TIMELINE || hedge;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadMode{" +
+            "consistency=" + consistency +
+            ", hedge=" + hedge +
+            '}';
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+/**
+ * Outcome of scanning one region in a parallel scan. A failed region can be scanned again
+ * by a regular scan starting after lastRowKey and stopping at endKey.
+ */
+public class RegionScanProgress {
+
+    public enum State {
+        COMPLETED, FAILED, CANCELLED, NOT_STARTED
+    }
+
+    private final String startKey;
+    private final String endKey;
+    private final State state;
+    private final long rows;
+    private final int retries;
+    private final String lastRowKey;
+    private final String error;
+
+    public RegionScanProgress() {
+        this.startKey = null;
+        this.endKey = null;
+        this.state = null;
+        this.rows = 0;
+        this.retries = 0;
+        this.lastRowKey = null;
+        this.error = null;
+    }
+
+    public RegionScanProgress(String startKey, String endKey, State state, long rows, int retries,
+        String lastRowKey, String error) {
+        this.startKey = startKey;
+        this.endKey = endKey;
+        this.state = state;
+        this.rows = rows;
+        this.retries = retries;
+        this.lastRowKey = lastRowKey;
+        this.error = error;
+    }
+
+    public String getStartKey() {
+        return startKey;
+    }
+
+    public String getEndKey() {
+        return endKey;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public String getLastRowKey() {
+        return lastRowKey;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "RegionScanProgress{" +
+            "startKey='" + startKey + '\'' +
+            ", endKey='" + endKey + '\'' +
+            ", state=" + state +
+            ", rows=" + rows +
+            ", retries=" + retries +
+            ", lastRowKey='" + lastRowKey + '\'' +
+            ", error='" + error + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+public class RowFailure {
+
+    private final String rowKey;
+    private final String message;
+
+    public RowFailure() {
+        this.rowKey = null;
+        this.message = null;
+    }
+
+    public RowFailure(String rowKey, String message) {
+        this.rowKey = rowKey;
+        this.message = message;
+    }
+
+    public String getRowKey() {
+        return rowKey;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "RowFailure{" +
+            "rowKey='" + rowKey + '\'' +
+            ", message='" + message + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public class RowLookup {
+
+    private final String rowKey;
+    private final boolean found;
+    private final List<ColumnFamilyValue> columnFamilies;
+    private final Boolean stale;
+
+    public RowLookup() {
+        this.rowKey = null;
+        this.found = false;
+        this.columnFamilies = null;
+        this.stale = null;
+    }
+
+    public RowLookup(String rowKey, boolean found, List<ColumnFamilyValue> columnFamilies) {
+        this(rowKey, found, columnFamilies, null);
+    }
+
+    public RowLookup(String rowKey, boolean found, List<ColumnFamilyValue> columnFamilies, Boolean stale) {
+        this.rowKey = rowKey;
+        this.found = found;
+        this.columnFamilies = columnFamilies;
+        this.stale = stale;
+    }
+
+    public static RowLookup missing(String rowKey) {
+        return new RowLookup(rowKey, false, null);
+    }
+
+    public static RowLookup of(String rowKey, RowValue row) {
+        return of(rowKey, row, null);
+    }
+
+    public static RowLookup of(String rowKey, RowValue row, Boolean stale) {
+        return new RowLookup(rowKey, row != null, row == null ? null : row.getColumnFamilies(), stale);
+    }
+
+    public String getRowKey() {
+        return rowKey;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public List<ColumnFamilyValue> getColumnFamilies() {
+        return columnFamilies;
+    }
+
+    /**
+     * Whether the lookup was answered by a secondary region replica, see {@link RowValue#getStale()}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Boolean getStale() {
+        return stale;
+    }
+}
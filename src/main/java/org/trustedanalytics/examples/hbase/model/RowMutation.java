@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import java.util.List;
+
+/**
+ * Puts and deletes applied to one row atomically, optionally only when a condition holds.
+ */
+public class RowMutation {
+
+    private final String rowKey;
+    private final List<ColumnFamilyValue> put;
+    private final List<String> delete;
+    private final MutationCondition condition;
+
+    public RowMutation() {
+        this.rowKey = null;
+        this.put = null;
+        this.delete = null;
+        this.condition = null;
+    }
+
+    public RowMutation(String rowKey, List<ColumnFamilyValue> put, List<String> delete, MutationCondition condition) {
+        this.rowKey = rowKey;
+        this.put = put;
+        this.delete = delete;
+        this.condition = condition;
+    }
+
+    public String getRowKey() {
+        return rowKey;
+    }
+
+    /**
+     * Values to write.
+     */
+    public List<ColumnFamilyValue> getPut() {
+        return put;
+    }
+
+    /**
+     * Columns to delete, each either "family" or "family:qualifier".
+     */
+    public List<String> getDelete() {
+        return delete;
+    }
+
+    public MutationCondition getCondition() {
+        return condition;
+    }
+
+    @Override
+    public String toString() {
+        return "RowMutation{" +
+            "rowKey='" + rowKey + '\'' +
+            ", put=" + put +
+            ", delete=" + delete +
+            ", condition=" + condition +
+            '}';
+    }
+}
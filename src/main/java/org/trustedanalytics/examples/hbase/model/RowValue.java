@@ -15,21 +15,37 @@
  */
 package org.trustedanalytics.examples.hbase.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class RowValue {
 
     private final String rowKey;
     private final List<ColumnFamilyValue> columnFamilies;
+    private final Long ttl;
+    private final Boolean stale;
 
     public RowValue() {
         this.rowKey = null;
         this.columnFamilies = null;
+        this.ttl = null;
+        this.stale = null;
     }
 
     public RowValue(String rowKey, List<ColumnFamilyValue> columnFamilies) {
+        this(rowKey, columnFamilies, null);
+    }
+
+    public RowValue(String rowKey, List<ColumnFamilyValue> columnFamilies, Long ttl) {
+        this(rowKey, columnFamilies, ttl, null);
+    }
+
+    public RowValue(String rowKey, List<ColumnFamilyValue> columnFamilies, Long ttl, Boolean stale) {
         this.rowKey = rowKey;
         this.columnFamilies = columnFamilies;
+        this.ttl = ttl;
+        this.stale = stale;
     }
 
     public String getRowKey() {
@@ -39,4 +55,22 @@ public class RowValue {
     public List<ColumnFamilyValue> getColumnFamilies() {
         return columnFamilies;
     }
+
+    /**
+     * Time to live of the written cells in milliseconds. Expired cells are no longer returned
+     * and are dropped on the next major compaction.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Whether the row was read from a secondary region replica and may miss recent writes.
+     * Reported only for timeline consistent or hedged reads.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Boolean getStale() {
+        return stale;
+    }
 }
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import java.util.List;
+
+/**
+ * Parameters of a table scan, bound from request parameters.
+ */
+public class ScanQuery extends VersionQuery {
+
+    private String startRow;
+    private String stopRow;
+    private String prefix;
+    private boolean reversed;
+    private Integer pageSize;
+    private String continuation;
+    private Integer caching;
+    private Long maxResultSize;
+    private List<String> columns;
+    private String filter;
+    private ValueEncoding encoding = ValueEncoding.UTF8;
+
+    public String getStartRow() {
+        return startRow;
+    }
+
+    public void setStartRow(String startRow) {
+        this.startRow = startRow;
+    }
+
+    public String getStopRow() {
+        return stopRow;
+    }
+
+    public void setStopRow(String stopRow) {
+        this.stopRow = stopRow;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    public void setReversed(boolean reversed) {
+        this.reversed = reversed;
+    }
+
+    /**
+     * Max number of rows returned at once, 0 or less means all remaining rows.
+     */
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Token returned with the previous page, the scan resumes right after the last row returned.
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+    public void setContinuation(String continuation) {
+        this.continuation = continuation;
+    }
+
+    /**
+     * Number of rows fetched from a region server in one RPC.
+     */
+    public Integer getCaching() {
+        return caching;
+    }
+
+    public void setCaching(Integer caching) {
+        this.caching = caching;
+    }
+
+    /**
+     * Max size in bytes of the rows fetched from a region server in one RPC.
+     */
+    public Long getMaxResultSize() {
+        return maxResultSize;
+    }
+
+    public void setMaxResultSize(Long maxResultSize) {
+        this.maxResultSize = maxResultSize;
+    }
+
+    /**
+     * Optional projection, each entry is either "family" or "family:qualifier".
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Optional filter expression in the HBase filter language, evaluated by region servers.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    public ValueEncoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(ValueEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanQuery{" +
+            "startRow='" + startRow + '\'' +
+            ", stopRow='" + stopRow + '\'' +
+            ", prefix='" + prefix + '\'' +
+            ", reversed=" + reversed +
+            ", pageSize=" + pageSize +
+            ", continuation='" + continuation + '\'' +
+            ", caching=" + caching +
+            ", maxResultSize=" + maxResultSize +
+            ", columns=" + columns +
+            ", filter='" + filter + '\'' +
+            ", maxVersions=" + getMaxVersions() +
+            ", timestamp=" + getTimestamp() +
+            ", minTimestamp=" + getMinTimestamp() +
+            ", maxTimestamp=" + getMaxTimestamp() +
+            ", encoding=" + encoding +
+            '}';
+    }
+}
@@ -15,42 +15,110 @@
  */
 package org.trustedanalytics.examples.hbase.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class TableDescription {
 
     private final String tableName;
     private final List<String> columnFamilies;
+    private final List<ColumnFamilyDescription> families;
+    private final PreSplit preSplit;
+    private final Integer regionReplication;
+    private final Integer saltBuckets;
+    private final List<IndexDescription> indexes;
 
     public TableDescription() {
-        this.tableName = null;
-        this.columnFamilies = null;
+        this(null, null, null, null, null, null);
     }
 
     public TableDescription(String tableName) {
-        this.tableName = tableName;
-        this.columnFamilies = null;
-
+        this(tableName, null, null, null, null, null);
     }
 
     public TableDescription(String tableName, List<String> columnFamilies) {
+        this(tableName, columnFamilies, null, null, null, null);
+    }
+
+    public TableDescription(String tableName, List<String> columnFamilies, List<ColumnFamilyDescription> families,
+        PreSplit preSplit, Integer regionReplication, Integer saltBuckets) {
+        this(tableName, columnFamilies, families, preSplit, regionReplication, saltBuckets, null);
+    }
+
+    public TableDescription(String tableName, List<String> columnFamilies, List<ColumnFamilyDescription> families,
+        PreSplit preSplit, Integer regionReplication, Integer saltBuckets, List<IndexDescription> indexes) {
         this.tableName = tableName;
         this.columnFamilies = columnFamilies;
+        this.families = families;
+        this.preSplit = preSplit;
+        this.regionReplication = regionReplication;
+        this.saltBuckets = saltBuckets;
+        this.indexes = indexes;
     }
 
     public String getTableName() {
         return tableName;
     }
 
+    /**
+     * Names of column families; families created from names only get default settings.
+     */
     public List<String> getColumnFamilies() {
         return columnFamilies;
     }
 
+    /**
+     * Column families with their storage settings.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public List<ColumnFamilyDescription> getFamilies() {
+        return families;
+    }
+
+    /**
+     * Only used when creating tables.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public PreSplit getPreSplit() {
+        return preSplit;
+    }
+
+    /**
+     * Number of replicas of each region, including the primary one.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getRegionReplication() {
+        return regionReplication;
+    }
+
+    /**
+     * Number of salt buckets row keys are spread over, the table is not salted when not given.
+     * Salted tables are split into one region per bucket when created.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getSaltBuckets() {
+        return saltBuckets;
+    }
+
+    /**
+     * Secondary indexes of the table's columns.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public List<IndexDescription> getIndexes() {
+        return indexes;
+    }
+
     @Override
     public String toString() {
         return "TableDescription{" +
             "tableName='" + tableName + '\'' +
             ", columnFamilies=" + columnFamilies +
+            ", families=" + families +
+            ", preSplit=" + preSplit +
+            ", regionReplication=" + regionReplication +
+            ", saltBuckets=" + saltBuckets +
+            ", indexes=" + indexes +
             '}';
     }
 }
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Base64;
+
+/**
+ * How cell values are represented in JSON. Values written with an encoding are decoded back to
+ * the original bytes, so binary values survive the round trip.
+ */
+public enum ValueEncoding {
+
+    UTF8 {
+        @Override
+        public String encode(byte[] bytes, int offset, int length) {
+            return Bytes.toString(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] decode(String value) {
+            return Bytes.toBytes(value);
+        }
+    },
+
+    BASE64 {
+        @Override
+        public String encode(byte[] bytes, int offset, int length) {
+            return Base64.getEncoder().encodeToString(copy(bytes, offset, length));
+        }
+
+        @Override
+        public byte[] decode(String value) {
+            return Base64.getDecoder().decode(value);
+        }
+    },
+
+    HEX {
+        @Override
+        public String encode(byte[] bytes, int offset, int length) {
+            char[] result = new char[length * 2];
+            for (int i = 0; i < length; i++) {
+                int b = bytes[offset + i] & 0xff;
+                result[2 * i] = HEX_DIGITS[b >>> 4];
+                result[2 * i + 1] = HEX_DIGITS[b & 0x0f];
+            }
+            return new String(result);
+        }
+
+        @Override
+        public byte[] decode(String value) {
+            if (value.length() % 2 != 0) {
+                throw new IllegalArgumentException("Hex value must have an even number of digits: " + value);
+            }
+            byte[] result = new byte[value.length() / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (byte) ((hexDigit(value.charAt(2 * i)) << 4) | hexDigit(value.charAt(2 * i + 1)));
+            }
+            return result;
+        }
+    },
+
+    LONG {
+        @Override
+        public String encode(byte[] bytes, int offset, int length) {
+            checkLength(length, Bytes.SIZEOF_LONG);
+            return Long.toString(Bytes.toLong(bytes, offset, length));
+        }
+
+        @Override
+        public byte[] decode(String value) {
+            return Bytes.toBytes(Long.parseLong(value));
+        }
+    },
+
+    INT {
+        @Override
+        public String encode(byte[] bytes, int offset, int length) {
+            checkLength(length, Bytes.SIZEOF_INT);
+            return Integer.toString(Bytes.toInt(bytes, offset, length));
+        }
+
+        @Override
+        public byte[] decode(String value) {
+            return Bytes.toBytes(Integer.parseInt(value));
+        }
+    },
+
+    DOUBLE {
+        @Override
+        public String encode(byte[] bytes, int offset, int length) {
+            checkLength(length, Bytes.SIZEOF_DOUBLE);
+            return Double.toString(Bytes.toDouble(bytes, offset));
+        }
+
+        @Override
+        public byte[] decode(String value) {
+            return Bytes.toBytes(Double.parseDouble(value));
+        }
+    };
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public abstract String encode(byte[] bytes, int offset, int length);
+
+    public abstract byte[] decode(String value);
+
+    public String encode(byte[] bytes) {
+        return encode(bytes, 0, bytes.length);
+    }
+
+    public static ValueEncoding orDefault(ValueEncoding encoding) {
+        return encoding == null ? UTF8 : encoding;
+    }
+
+    private static byte[] copy(byte[] bytes, int offset, int length) {
+        if (offset == 0 && length == bytes.length) {
+            return bytes;
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, offset, result, 0, length);
+        return result;
+    }
+
+    private static int hexDigit(char c) {
+        int digit = Character.digit(c, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid hex digit: " + c);
+        }
+        return digit;
+    }
+
+    private static void checkLength(int length, int expected) {
+        if (length != expected) {
+            throw new IllegalArgumentException(
+                String.format("Value of %d bytes cannot be read as %d byte number", length, expected));
+        }
+    }
+}
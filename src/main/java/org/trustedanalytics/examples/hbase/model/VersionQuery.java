@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.model;
+
+/**
+ * Which versions of cells are read, bound from request parameters. By default only the latest
+ * version of each cell is returned, without its timestamp.
+ */
+public class VersionQuery {
+
+    private Integer maxVersions;
+    private Long timestamp;
+    private Long minTimestamp;
+    private Long maxTimestamp;
+
+    /**
+     * Max number of versions returned per cell, newest first.
+     */
+    public Integer getMaxVersions() {
+        return maxVersions;
+    }
+
+    public void setMaxVersions(Integer maxVersions) {
+        this.maxVersions = maxVersions;
+    }
+
+    /**
+     * Only cells written exactly at this time (milliseconds since epoch) are returned.
+     */
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Only cells written at or after this time (milliseconds since epoch) are returned.
+     */
+    public Long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public void setMinTimestamp(Long minTimestamp) {
+        this.minTimestamp = minTimestamp;
+    }
+
+    /**
+     * Only cells written before this time (milliseconds since epoch) are returned.
+     */
+    public Long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public void setMaxTimestamp(Long maxTimestamp) {
+        this.maxTimestamp = maxTimestamp;
+    }
+
+    /**
+     * Whether versions or times were asked for, in which case cells come with their timestamps.
+     */
+    public boolean isVersioned() {
+        return maxVersions != null || timestamp != null || minTimestamp != null || maxTimestamp != null;
+    }
+
+    @Override
+    public String toString() {
+        return "VersionQuery{" +
+            "maxVersions=" + maxVersions +
+            ", timestamp=" + timestamp +
+            ", minTimestamp=" + minTimestamp +
+            ", maxTimestamp=" + maxTimestamp +
+            '}';
+    }
+}
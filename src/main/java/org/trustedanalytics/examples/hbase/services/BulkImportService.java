@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Timer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Tag;
+import org.apache.hadoop.hbase.TagType;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.ImportStatus;
+import org.trustedanalytics.examples.hbase.model.ImportStatus.State;
+import org.trustedanalytics.examples.hbase.model.RowValue;
+
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Imports rows by writing HFiles and handing them over to region servers, instead of sending
+ * puts. Nothing goes through memstores and WAL, which makes initial loads of large tables
+ * much cheaper for the cluster.
+ *
+ * Rows are sorted in memory buffers and written into HFiles in a staging directory whenever
+ * the buffers of all running imports together reach import.sortBufferBytes; then every import
+ * holding at least its share of that memory writes its buffer out. When the upload is complete, all files are loaded
+ * with LoadIncrementalHFiles; every region gets its files atomically. If the load fails, the
+ * files that haven't been loaded stay in the staging directory and the load can be retried.
+ *
+ * Cells keep the timestamps and TTL given in the rows, like puts. Cells without a timestamp get
+ * the import time, later buffers get later timestamps, so the last value given for a cell wins.
+ *
+ * Index entries are not written, so tables with secondary indexes are refused; import the rows
+ * first, then declare the indexes and rebuild them.
+ */
+@Service
+// timer contexts are only opened to be closed, they time the try blocks
+@SuppressWarnings("try")
+public class BulkImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final Pattern JOB_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Autowired
+    HBaseConnectionManager hBaseConnections;
+
+    @Autowired
+    ConversionsService conversionsService;
+
+    @Autowired
+    RowCache rowCache;
+
+    @Autowired
+    HBaseMetrics hBaseMetrics;
+
+    @Value("${import.stagingDir}")
+    private String stagingDir;
+
+    @Value("${import.sortBufferBytes}")
+    private long sortBufferBytes;
+
+    @Value("${import.maxReportedFailures}")
+    private int maxReportedFailures;
+
+    @Value("${import.retainedJobs}")
+    private int retainedJobs;
+
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+
+    // memory held by the sort buffers of all running imports
+    private final AtomicLong sortBuffers = new AtomicLong();
+    private final AtomicInteger writing = new AtomicInteger();
+
+    /**
+     * Import given rows into the table, blocks until the rows are loaded or the import fails.
+     * When the files are written but cannot be loaded, the job is LOAD_FAILED and can be retried
+     * with {@link #retryLoad(String)}.
+     *
+     * @param jobId id to check the progress with, generated when not given
+     */
+    public ImportStatus importRows(String name, String jobId, Iterator<RowValue> rows)
+        throws IOException, LoginException {
+        ImportJob job = register(name, jobId);
+
+        try (Timer.Context timer = hBaseMetrics.time("importRows");
+            Lease lease = hBaseConnections.lease()) {
+            Connection connection = lease.getConnection();
+            try {
+                TableName tableName = TableName.valueOf(name);
+                HTableDescriptor table;
+                byte[][] regionEndKeys;
+                try (Admin admin = connection.getAdmin();
+                    RegionLocator locator = connection.getRegionLocator(tableName)) {
+                    table = admin.getTableDescriptor(tableName);
+                    regionEndKeys = locator.getEndKeys();
+                }
+                if (!IndexedColumns.of(table).isEmpty()) {
+                    throw new IllegalArgumentException("Table " + name + " has secondary indexes, import before creating them");
+                }
+                write(job, connection.getConfiguration(), table, regionEndKeys, rows);
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Import {} failed while writing HFiles.", job.getId(), e);
+                job.fail(State.FAILED, e);
+                deleteStagingDir(connection.getConfiguration(), job);
+                throw e;
+            }
+            load(connection, job);
+        } catch (IOException | LoginException | RuntimeException e) {
+            // e.g. no connection could be leased, the job must not stay running
+            if (job.isRunning()) {
+                job.fail(State.FAILED, e);
+            }
+            throw e;
+        }
+        return job.status();
+    }
+
+    /**
+     * Load HFiles of an import whose load failed.
+     */
+    public ImportStatus retryLoad(String id) throws IOException, LoginException {
+        ImportJob job = getJob(id);
+        synchronized (jobs) {
+            if (job.getState() != State.LOAD_FAILED) {
+                throw new IllegalArgumentException("Import " + id + " is " + job.getState() + ", only failed loads can be retried");
+            }
+            job.setState(State.LOADING);
+        }
+
+        try (Timer.Context timer = hBaseMetrics.time("retryImportLoad");
+            Lease lease = hBaseConnections.lease()) {
+            load(lease.getConnection(), job);
+        }
+        return job.status();
+    }
+
+    public ImportStatus getStatus(String id) {
+        return getJob(id).status();
+    }
+
+    public List<ImportStatus> listJobs() {
+        List<ImportStatus> result = new ArrayList<>();
+        synchronized (jobs) {
+            jobs.values().forEach(job -> result.add(job.status()));
+        }
+        return result;
+    }
+
+    private void write(ImportJob job, Configuration conf, HTableDescriptor table, byte[][] regionEndKeys,
+        Iterator<RowValue> rows) throws IOException {
+        FileSystem fs = job.getStagingDir().getFileSystem(conf);
+        HFileSpill spill = new HFileSpill(conf, fs, job.getStagingDir(), table, regionEndKeys, job.getId());
+        SaltedKeys keys = SaltedKeys.of(table);
+        long timestamp = System.currentTimeMillis();
+
+        writing.incrementAndGet();
+        try {
+            while (rows.hasNext()) {
+                RowValue row = rows.next();
+                List<KeyValue> cells;
+                try {
+                    cells = toKeyValues(row, table, keys, timestamp);
+                } catch (IllegalArgumentException e) {
+                    job.reject(row.getRowKey(), e.getMessage());
+                    continue;
+                }
+
+                long buffered = spill.getBufferedBytes();
+                long bytes = 0;
+                for (KeyValue kv : cells) {
+                    spill.add(kv);
+                    bytes += kv.getLength();
+                }
+                job.recordWritten(cells.size(), bytes);
+
+                long total = sortBuffers.addAndGet(spill.getBufferedBytes() - buffered);
+                if (total >= sortBufferBytes && spill.getBufferedBytes() >= sortBufferBytes / Math.max(1, writing.get())) {
+                    job.filesWritten(flush(spill));
+                    timestamp++;
+                }
+            }
+            job.filesWritten(flush(spill));
+        } finally {
+            sortBuffers.addAndGet(-spill.getBufferedBytes());
+            writing.decrementAndGet();
+        }
+        job.filesWritten(-spill.merge());
+    }
+
+    private int flush(HFileSpill spill) throws IOException {
+        // the buffer is emptied even if writing it out fails
+        sortBuffers.addAndGet(-spill.getBufferedBytes());
+        return spill.flush();
+    }
+
+    private List<KeyValue> toKeyValues(RowValue row, HTableDescriptor table, SaltedKeys keys, long timestamp) {
+        Put put = conversionsService.constructPut(row, keys);
+        // the TTL is kept in a tag of each cell, as region servers do with the TTL of a put
+        List<Tag> tags = row.getTtl() == null ? Collections.emptyList()
+            : Collections.singletonList(new Tag(TagType.TTL_TAG_TYPE, Bytes.toBytes(put.getTTL())));
+        List<KeyValue> cells = new ArrayList<>(put.size());
+        for (List<Cell> family : put.getFamilyCellMap().values()) {
+            for (Cell cell : family) {
+                if (!table.hasFamily(CellUtil.cloneFamily(cell))) {
+                    throw new IllegalArgumentException(
+                        "Column family " + Bytes.toString(CellUtil.cloneFamily(cell)) + " does not exist");
+                }
+                long cellTimestamp = cell.getTimestamp() == HConstants.LATEST_TIMESTAMP ? timestamp : cell.getTimestamp();
+                cells.add(new KeyValue(CellUtil.cloneRow(cell), CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell),
+                    cellTimestamp, KeyValue.Type.Put, CellUtil.cloneValue(cell), tags));
+            }
+        }
+        return cells;
+    }
+
+    private void load(Connection connection, ImportJob job) {
+        job.setState(State.LOADING);
+        Configuration conf = connection.getConfiguration();
+        try (Table table = connection.getTable(TableName.valueOf(job.getTableName()))) {
+            // LoadIncrementalHFiles of this HBase version takes HTable only
+            new LoadIncrementalHFiles(conf).doBulkLoad(job.getStagingDir(), (HTable) table);
+            job.setState(State.COMPLETED);
+            deleteStagingDir(conf, job);
+        } catch (Exception e) {
+            LOG.error("Import {} failed while loading HFiles, files are kept in {}.", job.getId(), job.getStagingDir(), e);
+            job.fail(State.LOAD_FAILED, e);
+        } finally {
+            rowCache.invalidateTable(job.getTableName());
+        }
+    }
+
+    private void deleteStagingDir(Configuration conf, ImportJob job) {
+        try {
+            job.getStagingDir().getFileSystem(conf).delete(job.getStagingDir(), true);
+        } catch (IOException e) {
+            LOG.warn("Cannot delete staging directory {}.", job.getStagingDir(), e);
+        }
+    }
+
+    private ImportJob register(String name, String jobId) {
+        String id = jobId == null ? UUID.randomUUID().toString() : jobId;
+        if (!JOB_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Import id may only contain letters, digits, '-' and '_'");
+        }
+
+        ImportJob job = new ImportJob(id, name, new Path(stagingDir, id), maxReportedFailures);
+        synchronized (jobs) {
+            if (jobs.containsKey(id)) {
+                throw new IllegalArgumentException("Import " + id + " already exists");
+            }
+            jobs.put(id, job);
+
+            // forget the oldest finished jobs, failed loads are kept as they can be retried
+            Iterator<ImportJob> oldest = jobs.values().iterator();
+            while (jobs.size() > retainedJobs && oldest.hasNext()) {
+                ImportJob candidate = oldest.next();
+                if (!candidate.isRunning() && candidate.getState() != State.LOAD_FAILED) {
+                    oldest.remove();
+                }
+            }
+        }
+        return job;
+    }
+
+    private ImportJob getJob(String id) {
+        synchronized (jobs) {
+            ImportJob job = jobs.get(id);
+            if (job == null) {
+                throw new ImportJobNotFoundException(id);
+            }
+            return job;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.trustedanalytics.examples.hbase.model.AggregateResult;
+import org.trustedanalytics.examples.hbase.model.RegionScanProgress;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+
+import java.util.List;
+
+/**
+ * Partial aggregate of one region: counts rows and, when a column is given, adds up its
+ * latest values. Values are summed as longs while they are all integers and as doubles
+ * from the first fraction or overflow on. Not thread safe, each region scan has its own.
+ */
+final class ColumnAggregate implements RowHandler {
+
+    private final byte[] family;
+    private final byte[] qualifier;
+    private final ValueEncoding encoding;
+
+    private long rows;
+    private long values;
+    private long skipped;
+    private boolean decimal;
+    private long longSum;
+    private double doubleSum;
+    private long longMin = Long.MAX_VALUE;
+    private long longMax = Long.MIN_VALUE;
+    private double doubleMin = Double.POSITIVE_INFINITY;
+    private double doubleMax = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param column family:qualifier to aggregate, null to count rows only
+     */
+    ColumnAggregate(byte[][] column, ValueEncoding encoding) {
+        this.family = column == null ? null : column[0];
+        this.qualifier = column == null ? null : column[1];
+        this.encoding = encoding;
+    }
+
+    @Override
+    public void handle(Result r) {
+        rows++;
+        if (family == null) {
+            return;
+        }
+        Cell cell = r.getColumnLatestCell(family, qualifier);
+        if (cell == null) {
+            return;
+        }
+        byte[] bytes = cell.getValueArray();
+        int offset = cell.getValueOffset();
+        int length = cell.getValueLength();
+        switch (encoding) {
+            case LONG:
+                if (length == Bytes.SIZEOF_LONG) {
+                    add(Bytes.toLong(bytes, offset, length));
+                    return;
+                }
+                break;
+            case INT:
+                if (length == Bytes.SIZEOF_INT) {
+                    add(Bytes.toInt(bytes, offset, length));
+                    return;
+                }
+                break;
+            case DOUBLE:
+                if (length == Bytes.SIZEOF_DOUBLE) {
+                    add(Bytes.toDouble(bytes, offset));
+                    return;
+                }
+                break;
+            default:
+                String text = Bytes.toString(bytes, offset, length).trim();
+                try {
+                    add(Long.parseLong(text));
+                    return;
+                } catch (NumberFormatException notLong) {
+                    try {
+                        add(Double.parseDouble(text));
+                        return;
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+        }
+        skipped++;
+    }
+
+    private void add(long value) {
+        values++;
+        try {
+            longSum = Math.addExact(longSum, value);
+        } catch (ArithmeticException e) {
+            decimal = true;
+            doubleSum += value;
+        }
+        longMin = Math.min(longMin, value);
+        longMax = Math.max(longMax, value);
+        doubleMin = Math.min(doubleMin, value);
+        doubleMax = Math.max(doubleMax, value);
+    }
+
+    private void add(double value) {
+        values++;
+        decimal = true;
+        doubleSum += value;
+        doubleMin = Math.min(doubleMin, value);
+        doubleMax = Math.max(doubleMax, value);
+    }
+
+    void merge(ColumnAggregate other) {
+        rows += other.rows;
+        values += other.values;
+        skipped += other.skipped;
+        decimal |= other.decimal;
+        try {
+            longSum = Math.addExact(longSum, other.longSum);
+        } catch (ArithmeticException e) {
+            decimal = true;
+            doubleSum += other.longSum;
+        }
+        doubleSum += other.doubleSum;
+        longMin = Math.min(longMin, other.longMin);
+        longMax = Math.max(longMax, other.longMax);
+        doubleMin = Math.min(doubleMin, other.doubleMin);
+        doubleMax = Math.max(doubleMax, other.doubleMax);
+    }
+
+    AggregateResult toResult(List<RegionScanProgress> failedRegions) {
+        if (family == null) {
+            return new AggregateResult(rows, null, null, null, null, null, null, failedRegions);
+        }
+        if (values == 0) {
+            return new AggregateResult(rows, values, skipped, null, null, null, null, failedRegions);
+        }
+        double sum = doubleSum + longSum;
+        return new AggregateResult(rows, values, skipped,
+            decimal ? (Number) sum : (Number) longSum,
+            decimal ? (Number) doubleMin : (Number) longMin,
+            decimal ? (Number) doubleMax : (Number) longMax,
+            sum / values, failedRegions);
+    }
+}
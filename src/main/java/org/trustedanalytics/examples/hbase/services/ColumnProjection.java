@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.List;
+
+/**
+ * Restricts reads to given columns, so region servers don't send back whole rows.
+ * Each column is either "family" or "family:qualifier".
+ */
+final class ColumnProjection {
+
+    private ColumnProjection() {
+    }
+
+    static void applyTo(Get get, List<String> columns) {
+        if (columns == null) {
+            return;
+        }
+        for (String column : columns) {
+            byte[][] parsed = parse(column);
+            if (parsed[1] == null) {
+                get.addFamily(parsed[0]);
+            } else {
+                get.addColumn(parsed[0], parsed[1]);
+            }
+        }
+    }
+
+    static void applyTo(Scan scan, List<String> columns) {
+        if (columns == null) {
+            return;
+        }
+        for (String column : columns) {
+            byte[][] parsed = parse(column);
+            if (parsed[1] == null) {
+                scan.addFamily(parsed[0]);
+            } else {
+                scan.addColumn(parsed[0], parsed[1]);
+            }
+        }
+    }
+
+    /**
+     * @return family and qualifier, which is null when only the family is given
+     */
+    static byte[][] parse(String column) {
+        int separator = column.indexOf(':');
+        if (separator == 0) {
+            throw new IllegalArgumentException("Column family is missing in " + column);
+        }
+        if (separator < 0) {
+            return new byte[][] {Bytes.toBytes(column), null};
+        }
+        return new byte[][] {
+            Bytes.toBytes(column.substring(0, separator)),
+            Bytes.toBytes(column.substring(separator + 1))
+        };
+    }
+}
@@ -15,18 +15,40 @@
  */
 package org.trustedanalytics.examples.hbase.services;
 
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.RegionSplitter;
 import org.springframework.stereotype.Service;
+import org.trustedanalytics.examples.hbase.model.ColumnFamilyDescription;
 import org.trustedanalytics.examples.hbase.model.ColumnFamilyValue;
 import org.trustedanalytics.examples.hbase.model.ColumnValue;
+import org.trustedanalytics.examples.hbase.model.PreSplit;
+import org.trustedanalytics.examples.hbase.model.RowMutation;
 import org.trustedanalytics.examples.hbase.model.RowValue;
 import org.trustedanalytics.examples.hbase.model.TableDescription;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.NavigableMap;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,37 +65,320 @@ public class ConversionsService {
                     .map(HColumnDescriptor::getNameAsString)
                     .collect(Collectors.toList());
 
-            result = new TableDescription(name, familiesNames);
+            List<ColumnFamilyDescription> familiesSettings = families.stream()
+                    .map(ConversionsService::constructColumnFamilyDescription)
+                    .collect(Collectors.toList());
+
+            SaltedKeys keys = SaltedKeys.of(htd);
+            IndexedColumns indexes = IndexedColumns.of(htd);
+            result = new TableDescription(name, familiesNames, familiesSettings, null, htd.getRegionReplication(),
+                keys.isSalted() ? keys.getBuckets() : null, indexes.isEmpty() ? null : indexes.describe());
         }
 
         return result;
     }
 
+    private static ColumnFamilyDescription constructColumnFamilyDescription(HColumnDescriptor hcd) {
+        return new ColumnFamilyDescription(hcd.getNameAsString(), hcd.getCompressionType().name(),
+            hcd.getBloomFilterType().name(), hcd.getDataBlockEncoding().name(), hcd.getBlocksize(),
+            hcd.isBlockCacheEnabled(), hcd.isInMemory(), hcd.getMaxVersions(),
+            hcd.getTimeToLive() == HConstants.FOREVER ? null : hcd.getTimeToLive());
+    }
+
+    /**
+     * Families given only by name get default settings, the ones given with settings override them.
+     */
+    public HTableDescriptor constructTableDescriptor(TableName name, TableDescription description) {
+        HTableDescriptor table = new HTableDescriptor(name);
+        if (description.getColumnFamilies() != null) {
+            for (String columnFamily : description.getColumnFamilies()) {
+                table.addFamily(new HColumnDescriptor(columnFamily));
+            }
+        }
+        if (description.getFamilies() != null) {
+            for (ColumnFamilyDescription family : description.getFamilies()) {
+                table.addFamily(constructColumnDescriptor(family));
+            }
+        }
+        if (table.getColumnFamilies().length == 0) {
+            throw new IllegalArgumentException("Column families are missing");
+        }
+        if (description.getSaltBuckets() != null) {
+            SaltedKeys keys = SaltedKeys.of(description.getSaltBuckets());
+            if (keys.isSalted()) {
+                table.setValue(SaltedKeys.BUCKETS, Integer.toString(keys.getBuckets()));
+            }
+        }
+        if (description.getIndexes() != null) {
+            description.getIndexes().forEach(index -> IndexedColumns.applyTo(table, index));
+        }
+        if (description.getRegionReplication() != null) {
+            if (description.getRegionReplication() < 1) {
+                throw new IllegalArgumentException("Region replication has to be at least 1");
+            }
+            table.setRegionReplication(description.getRegionReplication());
+        }
+        return table;
+    }
+
+    private static HColumnDescriptor constructColumnDescriptor(ColumnFamilyDescription family) {
+        if (family.getName() == null) {
+            throw new IllegalArgumentException("Column family name is missing");
+        }
+
+        HColumnDescriptor hcd = new HColumnDescriptor(family.getName());
+        if (family.getCompression() != null) {
+            hcd.setCompressionType(parseSetting(Compression.Algorithm.class, family.getCompression(), "compression"));
+        }
+        if (family.getBloomFilter() != null) {
+            hcd.setBloomFilterType(parseSetting(BloomType.class, family.getBloomFilter(), "bloom filter"));
+        }
+        if (family.getDataBlockEncoding() != null) {
+            hcd.setDataBlockEncoding(parseSetting(DataBlockEncoding.class, family.getDataBlockEncoding(), "data block encoding"));
+        }
+        if (family.getBlockSize() != null) {
+            hcd.setBlocksize(family.getBlockSize());
+        }
+        if (family.getBlockCache() != null) {
+            hcd.setBlockCacheEnabled(family.getBlockCache());
+        }
+        if (family.getInMemory() != null) {
+            hcd.setInMemory(family.getInMemory());
+        }
+        if (family.getMaxVersions() != null) {
+            hcd.setMaxVersions(family.getMaxVersions());
+        }
+        if (family.getTtl() != null) {
+            hcd.setTimeToLive(family.getTtl());
+        }
+        return hcd;
+    }
+
+    private static <E extends Enum<E>> E parseSetting(Class<E> type, String value, String setting) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported " + setting + ": " + value);
+        }
+    }
+
+    /**
+     * @return first row keys of all regions but the first one, null when the table is not to be split
+     */
+    public byte[][] constructSplitKeys(PreSplit preSplit) {
+        if (preSplit == null) {
+            return null;
+        }
+        if (preSplit.getSplitKeys() != null) {
+            return sortedKeys(preSplit.getSplitKeys()).toArray(new byte[0][]);
+        }
+        if (preSplit.getAlgorithm() == null) {
+            throw new IllegalArgumentException("Split keys or algorithm are missing");
+        }
+
+        int regions = preSplit.getRegions() == null ? 0 : preSplit.getRegions();
+        if (regions < 2) {
+            throw new IllegalArgumentException("Pre-split needs at least 2 regions");
+        }
+        switch (preSplit.getAlgorithm()) {
+        case HEX:
+            return new RegionSplitter.HexStringSplit().split(regions);
+        case UNIFORM:
+            return new RegionSplitter.UniformSplit().split(regions);
+        default:
+            return splitKeysFromSample(preSplit.getSampleKeys(), regions);
+        }
+    }
+
+    /**
+     * Region boundaries at evenly spaced positions of the sorted sample, so each region gets
+     * about the same share of keys like the sampled ones.
+     */
+    private static byte[][] splitKeysFromSample(List<String> sampleKeys, int regions) {
+        if (sampleKeys == null) {
+            throw new IllegalArgumentException("Sample keys are missing");
+        }
+        List<byte[]> sorted = new ArrayList<>(sortedKeys(sampleKeys));
+        if (sorted.size() < regions) {
+            throw new IllegalArgumentException("Need at least as many distinct sample keys as regions");
+        }
+
+        byte[][] splits = new byte[regions - 1][];
+        for (int i = 1; i < regions; i++) {
+            splits[i - 1] = sorted.get((int) ((long) i * sorted.size() / regions));
+        }
+        return splits;
+    }
+
+    private static SortedSet<byte[]> sortedKeys(List<String> keys) {
+        SortedSet<byte[]> sorted = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+        for (String key : keys) {
+            if (key == null || key.isEmpty()) {
+                throw new IllegalArgumentException("Split keys cannot be empty");
+            }
+            sorted.add(Bytes.toBytes(key));
+        }
+        return sorted;
+    }
+
     public RowValue constructRowValue(Result r) {
-        RowValue result = null;
+        return constructRowValue(r, ValueEncoding.UTF8);
+    }
 
-        if (r != null && !r.isEmpty()) {
-            String rowKey = new String(r.getRow());
+    public RowValue constructRowValue(Result r, ValueEncoding encoding) {
+        return constructRowValue(r, encoding, false);
+    }
 
-            // Map<family,Map<qualifier,value>>
-            NavigableMap<byte[], NavigableMap<byte[], byte[]>> valueMap = r.getNoVersionMap();
+    /**
+     * Converts cells as they come in the result, sorted by family, qualifier and newest version first.
+     *
+     * @param versions whether to return all versions in the result with their timestamps,
+     *                 rather than the latest version of each column only
+     */
+    public RowValue constructRowValue(Result r, ValueEncoding encoding, boolean versions) {
+        if (r == null || r.isEmpty()) {
+            return null;
+        }
+        // text values are reported without encoding, as before encodings were introduced
+        ValueEncoding reported = encoding == ValueEncoding.UTF8 ? null : encoding;
 
-            List<ColumnFamilyValue> families = valueMap.entrySet().stream()
-                    .map(b -> new ColumnFamilyValue(new String(b.getKey()), constructColumnValues(b.getValue())))
-                    .collect(Collectors.toList());
+        List<ColumnFamilyValue> families = new ArrayList<>();
+        List<ColumnValue> columns = null;
+        Cell previous = null;
+        for (Cell cell : r.rawCells()) {
+            boolean newFamily = previous == null || !CellUtil.matchingFamily(previous, cell);
+            if (!versions && !newFamily && CellUtil.matchingQualifier(previous, cell)) {
+                // older version of the same column
+                continue;
+            }
+            if (newFamily) {
+                columns = new ArrayList<>();
+                families.add(new ColumnFamilyValue(
+                    Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()), columns));
+            }
+            String column = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+            String value = encoding.encode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            columns.add(new ColumnValue(column, value, reported, versions ? cell.getTimestamp() : null));
+            previous = cell;
+        }
+
+        return new RowValue(Bytes.toString(r.getRow()), families);
+    }
 
-            result = new RowValue(rowKey, families);
+    public Put constructPut(RowValue row, SaltedKeys keys) {
+        if (row.getRowKey() == null) {
+            throw new IllegalArgumentException("Row key is missing");
         }
 
-        return result;
+        Put p = new Put(keys.encode(row.getRowKey()));
+        if (row.getColumnFamilies() != null) {
+            for (ColumnFamilyValue family : row.getColumnFamilies()) {
+                byte[] familyName = Bytes.toBytes(family.getFamilyName());
+                for (ColumnValue column : family.getColumnValues()) {
+                    byte[] value = ValueEncoding.orDefault(column.getEncoding()).decode(column.getValue());
+                    if (column.getTimestamp() != null) {
+                        p.addColumn(familyName, Bytes.toBytes(column.getColumn()), column.getTimestamp(), value);
+                    } else {
+                        p.addColumn(familyName, Bytes.toBytes(column.getColumn()), value);
+                    }
+                }
+            }
+        }
+        if (row.getTtl() != null) {
+            if (row.getTtl() <= 0) {
+                throw new IllegalArgumentException("TTL has to be positive");
+            }
+            p.setTTL(row.getTtl());
+        }
+        return p;
     }
 
-    private List<ColumnValue> constructColumnValues(NavigableMap<byte[], byte[]> map) {
-        List<ColumnValue> result = null;
-        result = map.entrySet().stream()
-                .map(i -> new ColumnValue(new String(i.getKey()), new String(i.getValue())))
-                .collect(Collectors.toList());
-        return result;
+    /**
+     * Values of the row are the amounts to add, as decimal numbers.
+     */
+    public Increment constructIncrement(RowValue row, SaltedKeys keys) {
+        if (row.getRowKey() == null) {
+            throw new IllegalArgumentException("Row key is missing");
+        }
+
+        Increment increment = new Increment(keys.encode(row.getRowKey()));
+        if (row.getColumnFamilies() != null) {
+            for (ColumnFamilyValue family : row.getColumnFamilies()) {
+                byte[] familyName = Bytes.toBytes(family.getFamilyName());
+                for (ColumnValue column : family.getColumnValues()) {
+                    long amount;
+                    try {
+                        amount = Long.parseLong(column.getValue());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Increment of " + column.getColumn() + " is not a number");
+                    }
+                    increment.addColumn(familyName, Bytes.toBytes(column.getColumn()), amount);
+                }
+            }
+        }
+        return increment;
+    }
+
+    public Append constructAppend(RowValue row, SaltedKeys keys) {
+        if (row.getRowKey() == null) {
+            throw new IllegalArgumentException("Row key is missing");
+        }
+
+        Append append = new Append(keys.encode(row.getRowKey()));
+        if (row.getColumnFamilies() != null) {
+            for (ColumnFamilyValue family : row.getColumnFamilies()) {
+                byte[] familyName = Bytes.toBytes(family.getFamilyName());
+                for (ColumnValue column : family.getColumnValues()) {
+                    byte[] value = ValueEncoding.orDefault(column.getEncoding()).decode(column.getValue());
+                    append.add(familyName, Bytes.toBytes(column.getColumn()), value);
+                }
+            }
+        }
+        return append;
+    }
+
+    /**
+     * Delete all versions of given columns, each either "family" or "family:qualifier",
+     * or the whole row when no columns are given.
+     */
+    public Delete constructDelete(String rowKey, List<String> columns, SaltedKeys keys) {
+        if (rowKey == null) {
+            throw new IllegalArgumentException("Row key is missing");
+        }
+
+        Delete delete = new Delete(keys.encode(rowKey));
+        if (columns == null) {
+            return delete;
+        }
+        for (String column : columns) {
+            byte[][] parsed = ColumnProjection.parse(column);
+            if (parsed[1] == null) {
+                delete.addFamily(parsed[0]);
+            } else {
+                delete.addColumns(parsed[0], parsed[1]);
+            }
+        }
+        return delete;
+    }
+
+    public RowMutations constructRowMutations(RowMutation mutation, SaltedKeys keys) throws IOException {
+        if (mutation.getRowKey() == null) {
+            throw new IllegalArgumentException("Row key is missing");
+        }
+        boolean hasPut = mutation.getPut() != null && !mutation.getPut().isEmpty();
+        boolean hasDelete = mutation.getDelete() != null && !mutation.getDelete().isEmpty();
+        if (!hasPut && !hasDelete) {
+            throw new IllegalArgumentException("Nothing to put or delete");
+        }
+
+        RowMutations rowMutations = new RowMutations(keys.encode(mutation.getRowKey()));
+        if (hasPut) {
+            rowMutations.add(constructPut(new RowValue(mutation.getRowKey(), mutation.getPut()), keys));
+        }
+        if (hasDelete) {
+            rowMutations.add(constructDelete(mutation.getRowKey(), mutation.getDelete(), keys));
+        }
+        return rowMutations;
     }
 
 }
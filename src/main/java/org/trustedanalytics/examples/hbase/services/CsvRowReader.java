@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.trustedanalytics.examples.hbase.model.ColumnFamilyValue;
+import org.trustedanalytics.examples.hbase.model.ColumnValue;
+import org.trustedanalytics.examples.hbase.model.RowValue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads rows from CSV with a header line naming the columns: the first one holds row keys,
+ * the others are "family:qualifier". Values may be quoted, empty values are skipped.
+ * Quoted values cannot span lines.
+ */
+public class CsvRowReader implements Iterator<RowValue> {
+
+    private final BufferedReader reader;
+    private final String[] families;
+    private final String[] qualifiers;
+    private String line;
+
+    public CsvRowReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        List<String> columns = parse(header);
+        families = new String[columns.size()];
+        qualifiers = new String[columns.size()];
+        for (int i = 1; i < columns.size(); i++) {
+            String[] column = columns.get(i).split(":", 2);
+            if (column.length != 2) {
+                throw new IllegalArgumentException("CSV column " + columns.get(i) + " is not family:qualifier");
+            }
+            families[i] = column[0];
+            qualifiers[i] = column[1];
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (line == null) {
+                line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                if (line.isEmpty()) {
+                    line = null;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public RowValue next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> values = parse(line);
+        line = null;
+
+        Map<String, List<ColumnValue>> columns = new LinkedHashMap<>();
+        for (int i = 1; i < values.size() && i < families.length; i++) {
+            if (!values.get(i).isEmpty()) {
+                columns.computeIfAbsent(families[i], f -> new ArrayList<>())
+                    .add(new ColumnValue(qualifiers[i], values.get(i)));
+            }
+        }
+        List<ColumnFamilyValue> columnFamilies = new ArrayList<>(columns.size());
+        columns.forEach((family, familyColumns) -> columnFamilies.add(new ColumnFamilyValue(family, familyColumns)));
+        return new RowValue(values.isEmpty() || values.get(0).isEmpty() ? null : values.get(0), columnFamilies);
+    }
+
+    private static List<String> parse(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
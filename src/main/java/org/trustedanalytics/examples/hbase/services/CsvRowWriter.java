@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes rows as CSV. Given a list of "family:qualifier" columns, every row is one line with
+ * those columns (the format accepted by the bulk import); otherwise every cell is one line of
+ * rowKey,family,qualifier,timestamp,value, with a line for each version when versions are asked for.
+ */
+class CsvRowWriter {
+
+    private final Writer out;
+    private final ValueEncoding encoding;
+    private final boolean versioned;
+    private final byte[][] families;
+    private final byte[][] qualifiers;
+
+    CsvRowWriter(Writer out, List<String> columns, ValueEncoding encoding, boolean versioned) {
+        this.out = out;
+        this.encoding = encoding;
+        this.versioned = versioned;
+        if (isColumnLayout(columns)) {
+            families = new byte[columns.size()][];
+            qualifiers = new byte[columns.size()][];
+            for (int i = 0; i < columns.size(); i++) {
+                String[] column = columns.get(i).split(":", 2);
+                families[i] = Bytes.toBytes(column[0]);
+                qualifiers[i] = Bytes.toBytes(column[1]);
+            }
+        } else {
+            families = null;
+            qualifiers = null;
+        }
+    }
+
+    /**
+     * Whether the given columns make every row one line, see the class description.
+     */
+    static boolean isColumnLayout(List<String> columns) {
+        return columns != null && !columns.isEmpty() && columns.stream().allMatch(c -> c.contains(":"));
+    }
+
+    void writeHeader() throws IOException {
+        if (families == null) {
+            out.write("rowKey,family,qualifier,timestamp,value\n");
+            return;
+        }
+        out.write("rowKey");
+        for (int i = 0; i < families.length; i++) {
+            out.write(',');
+            writeValue(Bytes.toString(families[i]) + ":" + Bytes.toString(qualifiers[i]));
+        }
+        out.write('\n');
+    }
+
+    void write(Result r) throws IOException {
+        if (families == null) {
+            writeCells(r);
+            return;
+        }
+        writeValue(Bytes.toString(r.getRow()));
+        for (int i = 0; i < families.length; i++) {
+            out.write(',');
+            Cell cell = r.getColumnLatestCell(families[i], qualifiers[i]);
+            if (cell != null) {
+                writeValue(encoding.encode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+            }
+        }
+        out.write('\n');
+    }
+
+    private void writeCells(Result r) throws IOException {
+        String rowKey = Bytes.toString(r.getRow());
+        Cell previous = null;
+        for (Cell cell : r.rawCells()) {
+            if (!versioned && previous != null && CellUtil.matchingColumn(previous, cell)) {
+                // older version of the same column
+                continue;
+            }
+            writeValue(rowKey);
+            out.write(',');
+            writeValue(Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()));
+            out.write(',');
+            writeValue(Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()));
+            out.write(',');
+            out.write(Long.toString(cell.getTimestamp()));
+            out.write(',');
+            writeValue(encoding.encode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+            out.write('\n');
+            previous = cell;
+        }
+    }
+
+    private void writeValue(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
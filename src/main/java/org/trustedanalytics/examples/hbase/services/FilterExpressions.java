@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.ParseFilter;
+import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.protobuf.generated.FilterProtos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+
+/**
+ * Parses filter expressions written in the HBase filter language, e.g.
+ * {@code PrefixFilter('user') AND SingleColumnValueFilter('f', 'age', >=, 'binary:30')},
+ * into filters evaluated by region servers.
+ *
+ * Filters keep state while a scan runs, so they can't be shared between requests. Parsed
+ * expressions are cached in their protobuf form instead, which is immutable and turns into a
+ * new filter much faster than the expression is parsed.
+ */
+@Component
+public class FilterExpressions {
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Value("${filters.cacheSize}")
+    private long cacheSize;
+
+    @Value("${filters.maxLength}")
+    private int maxLength;
+
+    private LoadingCache<String, FilterProtos.Filter> parsed;
+
+    @PostConstruct
+    public void init() {
+        parsed = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .recordStats()
+            .build(FilterExpressions::parse);
+
+        metrics.register("cache.filters.hits", (Gauge<Long>) () -> parsed.stats().hitCount());
+        metrics.register("cache.filters.misses", (Gauge<Long>) () -> parsed.stats().missCount());
+    }
+
+    /**
+     * @throws IllegalArgumentException when the expression is not valid
+     */
+    public Filter toFilter(String expression) {
+        String trimmed = expression.trim();
+        if (trimmed.length() > maxLength) {
+            throw new IllegalArgumentException(
+                String.format("Filter expression is longer than %d characters", maxLength));
+        }
+
+        FilterProtos.Filter proto = parsed.get(trimmed);
+        try {
+            return ProtobufUtil.toFilter(proto);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot restore cached filter " + trimmed, e);
+        }
+    }
+
+    private static FilterProtos.Filter parse(String expression) {
+        try {
+            return ProtobufUtil.toFilter(new ParseFilter().parseFilterString(expression));
+        } catch (CharacterCodingException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid filter expression: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Filter cannot be sent to region servers: " + e.getMessage(), e);
+        }
+    }
+}
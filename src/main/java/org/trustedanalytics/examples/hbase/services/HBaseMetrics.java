@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Timers of HBase operations and counters of data moved to and from HBase.
+ * Byte counts include row keys, column names and values, not the RPC overhead.
+ */
+@Component
+public class HBaseMetrics {
+
+    @Autowired
+    MetricRegistry metrics;
+
+    private Counter rowsRead;
+    private Counter cellsRead;
+    private Counter bytesRead;
+    private Counter rowsWritten;
+    private Counter cellsWritten;
+    private Counter bytesWritten;
+    private Counter rowsDeleted;
+    private Counter staleReads;
+    private Counter scanPages;
+    private Counter regionScanRetries;
+
+    @PostConstruct
+    public void init() {
+        rowsRead = metrics.counter("hbase.rows.read");
+        cellsRead = metrics.counter("hbase.cells.read");
+        bytesRead = metrics.counter("hbase.bytes.read");
+        rowsWritten = metrics.counter("hbase.rows.written");
+        cellsWritten = metrics.counter("hbase.cells.written");
+        bytesWritten = metrics.counter("hbase.bytes.written");
+        rowsDeleted = metrics.counter("hbase.rows.deleted");
+        staleReads = metrics.counter("hbase.reads.stale");
+        scanPages = metrics.counter("hbase.scan.pages");
+        regionScanRetries = metrics.counter("hbase.scan.regionRetries");
+    }
+
+    /**
+     * Start timing given operation, close the returned context when it is done.
+     */
+    public Timer.Context time(String operation) {
+        return metrics.timer("hbase.operations." + operation).time();
+    }
+
+    public void read(Result r) {
+        if (r == null) {
+            return;
+        }
+        if (r.isStale()) {
+            staleReads.inc();
+        }
+        if (r.isEmpty()) {
+            return;
+        }
+        long bytes = 0;
+        for (Cell cell : r.rawCells()) {
+            bytes += size(cell);
+        }
+        rowsRead.inc();
+        cellsRead.inc(r.rawCells().length);
+        bytesRead.inc(bytes);
+    }
+
+    public void written(Mutation mutation) {
+        long cells = 0;
+        long bytes = 0;
+        for (List<Cell> family : mutation.getFamilyCellMap().values()) {
+            for (Cell cell : family) {
+                cells++;
+                bytes += size(cell);
+            }
+        }
+        rowsWritten.inc();
+        cellsWritten.inc(cells);
+        bytesWritten.inc(bytes);
+    }
+
+    /**
+     * Deletes are counted apart from writes, their tombstones carry no values.
+     */
+    public void deleted() {
+        rowsDeleted.inc();
+    }
+
+    public void scanPage() {
+        scanPages.inc();
+    }
+
+    public void regionScanRetry() {
+        regionScanRetries.inc();
+    }
+
+    private static long size(Cell cell) {
+        return cell.getRowLength() + cell.getFamilyLength() + cell.getQualifierLength() + cell.getValueLength();
+    }
+}
@@ -15,34 +15,65 @@
  */
 package org.trustedanalytics.examples.hbase.services;
 
-import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.HColumnDescriptor;
+import com.codahale.metrics.Timer;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.UnknownScannerException;
 import org.apache.hadoop.hbase.client.*;
-import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.trustedanalytics.examples.hbase.configs.HBaseConnectionFactory;
-import org.trustedanalytics.examples.hbase.model.ColumnFamilyValue;
-import org.trustedanalytics.examples.hbase.model.ColumnValue;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.AggregateResult;
+import org.trustedanalytics.examples.hbase.model.BatchResult;
+import org.trustedanalytics.examples.hbase.model.MutationCondition;
+import org.trustedanalytics.examples.hbase.model.MutationResult;
+import org.trustedanalytics.examples.hbase.model.ReadMode;
+import org.trustedanalytics.examples.hbase.model.RegionScanProgress;
+import org.trustedanalytics.examples.hbase.model.RowMutation;
+import org.trustedanalytics.examples.hbase.model.RowFailure;
+import org.trustedanalytics.examples.hbase.model.RowLookup;
 import org.trustedanalytics.examples.hbase.model.RowValue;
+import org.trustedanalytics.examples.hbase.model.ScanQuery;
 import org.trustedanalytics.examples.hbase.model.TableDescription;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+import org.trustedanalytics.examples.hbase.model.VersionQuery;
 
 import javax.security.auth.login.LoginException;
+import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
+// timer contexts are only opened to be closed, they time the try blocks
+@SuppressWarnings("try")
 public class HBaseService {
 
     private static final Logger LOG = LoggerFactory.getLogger(HBaseService.class);
@@ -51,7 +82,28 @@ public class HBaseService {
     ConversionsService conversionsService;
 
     @Autowired
-    HBaseConnectionFactory hBaseConnectionFactory;
+    HBaseConnectionManager hBaseConnections;
+
+    @Autowired
+    RowCache rowCache;
+
+    @Autowired
+    TableMetadataCache tableMetadata;
+
+    @Autowired
+    HBaseMetrics hBaseMetrics;
+
+    @Autowired
+    FilterExpressions filterExpressions;
+
+    @Autowired
+    ThreadPoolTaskExecutor regionScanExecutor;
+
+    @Autowired
+    HedgedReads hedgedReads;
+
+    @Autowired
+    IndexWriter indexWriter;
 
     @Value("${hbase.namespace}")
     private String hbaseNamespace;
@@ -59,20 +111,41 @@ public class HBaseService {
     @Value("${results.pageSize}")
     private int pageSize;
 
+    @Value("${results.scanCaching}")
+    private int scanCaching;
+
+    @Value("${aggregate.caching}")
+    private int aggregateCaching;
+
+    @Value("${scan.parallel.maxParallelism}")
+    private int maxParallelism;
+
+    @Value("${scan.parallel.queueSize}")
+    private int parallelScanQueueSize;
+
+    @Value("${scan.parallel.maxRetries}")
+    private int parallelScanMaxRetries;
+
+    @Value("${export.maxResultSize}")
+    private long exportMaxResultSize;
+
+    @Value("${hbase.mutator.writeBufferSize}")
+    private long writeBufferSize;
+
+    @Value("${hbase.mutator.flushIntervalMs}")
+    private long flushIntervalMs;
+
+    @Value("${hbase.mutator.durability}")
+    private Durability defaultDurability;
+
     /**
      * Get list of tables in given namespace;
      */
     public List<TableDescription> listTables() throws LoginException {
         List<TableDescription> result = null;
 
-        try (Connection connection = hBaseConnectionFactory.connect();
-            Admin admin = connection.getAdmin()) {
-            HTableDescriptor[] tables = admin.listTables();
-
-            Stream<HTableDescriptor> tableDescriptorsStream = Arrays.stream(tables);
-
-            result = tableDescriptorsStream.map(conversionsService::constructTableDescription)
-                .collect(Collectors.toList());
+        try (Timer.Context timer = hBaseMetrics.time("listTables")) {
+            result = tableMetadata.listTables();
         } catch (IOException e) {
             LOG.error("Error while talking to HBase.", e);
         }
@@ -81,74 +154,771 @@ public class HBaseService {
     }
 
     public TableDescription getTableInfo(String name) throws IOException, LoginException {
-        TableDescription result = null;
-
-        try (Connection connection = hBaseConnectionFactory.connect();
-            Admin admin = connection.getAdmin()) {
-            HTableDescriptor tableDesc = admin.getTableDescriptor(TableName.valueOf(name));
-            result = conversionsService.constructTableDescription(tableDesc);
+        try (Timer.Context timer = hBaseMetrics.time("getTableInfo")) {
+            return tableMetadata.getTableInfo(name);
         }
+    }
+
+    /**
+     * Get first (or last) rows of given table. Row range, projection and filters of the query
+     * are applied, the number of rows is always the configured page size.
+     */
+    public List<RowValue> head(String name, boolean reverse, ScanQuery query) throws IOException, LoginException {
+        List<RowValue> result = new ArrayList<>();
+
+        query.setReversed(reverse);
+        query.setPageSize(pageSize);
+        query.setContinuation(null);
+        scan(name, query, r -> result.add(conversionsService.constructRowValue(r, query.getEncoding(), query.isVersioned())));
 
         return result;
     }
 
-    public List<RowValue> head(String name, boolean reverse) throws IOException, LoginException {
-        List<RowValue> result = new ArrayList<>();
+    /**
+     * Scan given table, passing rows to the handler as they come from region servers.
+     * The page size is enforced here rather than with a PageFilter, which region servers apply
+     * to each region separately.
+     *
+     * @return token to continue the scan with, or null when there are no more rows
+     */
+    public String scan(String name, ScanQuery query, RowHandler handler) throws IOException, LoginException {
+        int pageLimit = query.getPageSize() == null ? pageSize : query.getPageSize();
+        int limit = pageLimit <= 0 ? Integer.MAX_VALUE : pageLimit;
+
+        byte[] resumeAfter = decodeContinuation(query.getContinuation());
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        List<Scan> scans = constructScans(query, resumeAfter, keys);
+        // one more row than the limit tells whether the scan should be continued
+        int caching = query.getCaching() != null ? query.getCaching() : scanCaching;
+        scans.forEach(scan -> scan.setCaching(limit < caching ? limit + 1 : caching));
+
+        hBaseMetrics.scanPage();
+        try (Timer.Context timer = hBaseMetrics.time("scan");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name));
+            ResultScanner rs = getScanner(table, scans, query.isReversed(), keys)) {
+            byte[] lastRow = null;
+            int count = 0;
+            for (Result r = rs.next(); r != null; r = rs.next()) {
+                hBaseMetrics.read(r);
+                if (resumeAfter != null && Bytes.equals(resumeAfter, r.getRow())) {
+                    continue;
+                }
+                if (count == limit) {
+                    return encodeContinuation(lastRow);
+                }
+                handler.handle(r);
+                lastRow = r.getRow();
+                count++;
+            }
+        }
 
-        try (Connection connection = hBaseConnectionFactory.connect()) {
-            Table table = connection.getTable(TableName.valueOf(name));
+        return null;
+    }
 
-            Scan scan = new Scan();
-            scan.setReversed(reverse);
-            scan.setFilter(new PageFilter(pageSize));
-            try (ResultScanner rs = table.getScanner(scan)) {
-                for (Result r = rs.next(); r != null; r = rs.next()) {
-                    result.add(conversionsService.constructRowValue(r));
+    /**
+     * Scan the whole range of the query, ignoring its page size, for exports to slow clients.
+     * Rows are fetched in RPCs of bounded size only as fast as the handler takes them. When the
+     * client is so slow that the scanner lease expires on the region server, the scan is
+     * reopened after the last row handled.
+     */
+    public void scanAll(String name, ScanQuery query, RowHandler handler) throws IOException, LoginException {
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        byte[] lastRow = null;
+        try (Timer.Context timer = hBaseMetrics.time("scanAll");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+            while (true) {
+                List<Scan> scans = constructScans(query, lastRow, keys);
+                for (Scan scan : scans) {
+                    scan.setCaching(query.getCaching() != null ? query.getCaching() : scanCaching);
+                    if (query.getMaxResultSize() == null) {
+                        scan.setMaxResultSize(exportMaxResultSize);
+                    }
+                }
+
+                byte[] reopenedAt = lastRow;
+                try (ResultScanner rs = getScanner(table, scans, query.isReversed(), keys)) {
+                    for (Result r = rs.next(); r != null; r = rs.next()) {
+                        if (lastRow != null && Bytes.equals(lastRow, r.getRow())) {
+                            continue;
+                        }
+                        hBaseMetrics.read(r);
+                        handler.handle(r);
+                        lastRow = r.getRow();
+                    }
+                    return;
+                } catch (ScannerTimeoutException | UnknownScannerException e) {
+                    if (lastRow == null || lastRow == reopenedAt) {
+                        throw e;
+                    }
+                    LOG.info("Scanner of {} expired while writing to a slow client, reopening.", name);
                 }
             }
         }
+    }
 
-        return result;
+    /**
+     * Scan given table with one sub-scan per region, running up to the given number of them
+     * concurrently. Row range, projection and filters of the query are applied; the page size
+     * is not, the whole range is scanned. See {@link ParallelScan} for the details.
+     *
+     * @param ordered whether rows are passed to the handler in key order
+     * @return outcome of each region's scan
+     */
+    public List<RegionScanProgress> scanRegions(String name, ScanQuery query, boolean ordered, Integer parallelism,
+        RowHandler handler) throws IOException, LoginException {
+        if (query.isReversed()) {
+            throw new IllegalArgumentException("Parallel scans cannot be reversed");
+        }
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        if (ordered && keys.isSalted()) {
+            throw new IllegalArgumentException("Rows of salted tables are not stored in key order, scan them unordered");
+        }
+
+        List<Scan> scans = constructScans(query, null, keys);
+        scans.get(0).setCaching(query.getCaching() != null ? query.getCaching() : scanCaching);
+        try (Timer.Context timer = hBaseMetrics.time("scanRegions")) {
+            ParallelScan parallelScan = constructParallelScan(name, scans, parallelism);
+            return parallelScan.run(ordered, keys.isSalted() ? r -> handler.handle(keys.decode(r)) : handler);
+        }
     }
 
+    /**
+     * Count rows in the query's range and, when a column is given, add up its values, with one
+     * concurrent sub-scan per region. Each region is aggregated by the thread scanning it and only
+     * its totals are merged. The scans bring back just the first key of each row when counting,
+     * or only the given column's latest cell otherwise.
+     *
+     * HBase aggregation coprocessors are not used, as they would have to be deployed on the cluster;
+     * rows still come to this service, but stripped to a few bytes each.
+     *
+     * @param column   family:qualifier of numeric values, null to count rows only
+     * @param encoding how the values are stored, UTF8 for decimal text
+     */
+    public AggregateResult aggregate(String name, ScanQuery query, String column, ValueEncoding encoding,
+        Integer parallelism) throws IOException, LoginException {
+        if (query.isReversed()) {
+            throw new IllegalArgumentException("Aggregations cannot be reversed");
+        }
+        byte[][] parsed = null;
+        if (column != null) {
+            parsed = ColumnProjection.parse(column);
+            if (parsed[1] == null) {
+                throw new IllegalArgumentException("Aggregated column has to be family:qualifier");
+            }
+            if (!EnumSet.of(ValueEncoding.UTF8, ValueEncoding.LONG, ValueEncoding.INT, ValueEncoding.DOUBLE)
+                .contains(encoding)) {
+                throw new IllegalArgumentException("Values can be aggregated as UTF8, LONG, INT or DOUBLE, not " + encoding);
+            }
+        }
+
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        List<Scan> scans = constructScans(query, null, keys);
+        Scan scan = scans.get(0);
+        if (parsed != null && Strings.isEmpty(query.getFilter())) {
+            scan.setFamilyMap(new TreeMap<>(Bytes.BYTES_COMPARATOR));
+            scan.addColumn(parsed[0], parsed[1]);
+        } else if (parsed != null) {
+            // the filter sees only the scanned columns, so the query's columns are kept and the aggregated
+            // one is added to them; ColumnAggregate picks it out of the rows
+            Map<byte[], NavigableSet<byte[]>> families = scan.getFamilyMap();
+            if (scan.hasFamilies() && (!families.containsKey(parsed[0]) || families.get(parsed[0]) != null)) {
+                scan.addColumn(parsed[0], parsed[1]);
+            }
+        } else if (Strings.isEmpty(query.getFilter())) {
+            // filters of the query may need to see all cells, so rows are stripped only without one
+            scan.setFilter(withFilter(scan.getFilter(), new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter())));
+        }
+        scan.setMaxVersions(1);
+        scan.setCacheBlocks(false);
+        scan.setCaching(query.getCaching() != null ? query.getCaching() : aggregateCaching);
+
+        try (Timer.Context timer = hBaseMetrics.time("aggregate")) {
+            ParallelScan parallelScan = constructParallelScan(name, scans, parallelism);
+            List<ColumnAggregate> partials = Collections.synchronizedList(new ArrayList<>());
+            byte[][] aggregated = parsed;
+            List<RegionScanProgress> progress = parallelScan.runLocal(() -> {
+                ColumnAggregate partial = new ColumnAggregate(aggregated, encoding);
+                partials.add(partial);
+                return partial;
+            });
+
+            ColumnAggregate total = new ColumnAggregate(parsed, encoding);
+            synchronized (partials) {
+                partials.forEach(total::merge);
+            }
+            List<RegionScanProgress> failed = progress.stream()
+                .filter(region -> region.getState() != RegionScanProgress.State.COMPLETED)
+                .collect(Collectors.toList());
+            return total.toResult(failed);
+        }
+    }
 
-    public void createTable(TableDescription tableDescription) throws IOException, LoginException {
-        try (Connection connection = hBaseConnectionFactory.connect();
-            Admin admin = connection.getAdmin()) {
+    private static Filter withFilter(Filter filter, Filter other) {
+        return filter == null ? other : new FilterList(FilterList.Operator.MUST_PASS_ALL, filter, other);
+    }
 
-            HTableDescriptor table = new HTableDescriptor(TableName.valueOf(ensureNamespace(tableDescription.getTableName())));
-            for (String columnFamily : tableDescription.getColumnFamilies()) {
-                table.addFamily(new HColumnDescriptor(columnFamily));
+    /**
+     * Sub-scans of the given scans' ranges split at region boundaries. All of them take the
+     * settings of the first scan, the scans of salted tables differ only in their row ranges.
+     */
+    ParallelScan constructParallelScan(String name, List<Scan> scans, Integer parallelism)
+        throws IOException, LoginException {
+        int threads = parallelism == null ? maxParallelism : Math.max(1, Math.min(parallelism, maxParallelism));
+        TableName tableName = TableName.valueOf(name);
+        ParallelScan parallelScan = new ParallelScan(hBaseConnections, tableName, scans.get(0), regionScanExecutor,
+            threads, parallelScanQueueSize, parallelScanMaxRetries, hBaseMetrics);
+
+        Pair<byte[][], byte[][]> regions;
+        try (Lease lease = hBaseConnections.lease();
+            RegionLocator locator = lease.getConnection().getRegionLocator(tableName)) {
+            regions = locator.getStartEndKeys();
+        }
+        for (Scan range : scans) {
+            for (int i = 0; i < regions.getFirst().length; i++) {
+                byte[] start = later(regions.getFirst()[i], range.getStartRow());
+                byte[] stop = earlier(regions.getSecond()[i], range.getStopRow());
+                if (stop.length == 0 || Bytes.compareTo(start, stop) < 0) {
+                    parallelScan.addRange(start, stop);
+                }
             }
+        }
+        return parallelScan;
+    }
+
+    private static byte[] later(byte[] startKey, byte[] otherStartKey) {
+        return Bytes.compareTo(startKey, otherStartKey) >= 0 ? startKey : otherStartKey;
+    }
 
-            admin.createTable(table);
+    /**
+     * Empty stop keys stand for the end of the table.
+     */
+    private static byte[] earlier(byte[] stopKey, byte[] otherStopKey) {
+        if (stopKey.length == 0) {
+            return otherStopKey;
         }
+        if (otherStopKey.length == 0) {
+            return stopKey;
+        }
+        return Bytes.compareTo(stopKey, otherStopKey) <= 0 ? stopKey : otherStopKey;
     }
 
-    public void putRow(String name, RowValue row) throws IOException, LoginException {
-        try (Connection connection = hBaseConnectionFactory.connect()) {
-            Table table = connection.getTable(TableName.valueOf(name));
+    /**
+     * One scan for unsalted tables, one per bucket for salted ones.
+     */
+    List<Scan> constructScans(ScanQuery query, byte[] resumeAfter, SaltedKeys keys) throws IOException {
+        if (!keys.isSalted()) {
+            return Collections.singletonList(constructScan(query, resumeAfter, keys, -1));
+        }
+        List<Scan> scans = new ArrayList<>(keys.getBuckets());
+        for (int bucket = 0; bucket < keys.getBuckets(); bucket++) {
+            scans.add(constructScan(query, resumeAfter, keys, bucket));
+        }
+        return scans;
+    }
+
+    private static ResultScanner getScanner(Table table, List<Scan> scans, boolean reversed, SaltedKeys keys)
+        throws IOException {
+        return keys.isSalted() ? new SaltedScanner(table, scans, reversed, keys) : table.getScanner(scans.get(0));
+    }
 
-            Put p = new Put(Bytes.toBytes(row.getRowKey()));
-            for (ColumnFamilyValue family : row.getColumnFamilies() ) {
-                for (ColumnValue column : family.getColumnValues()) {
-                    p.addColumn(Bytes.toBytes(family.getFamilyName()), Bytes.toBytes(column.getColumn()),Bytes.toBytes(column.getValue()));
+    /**
+     * @param bucket bucket of a salted table to scan, row keys of the query are placed in it
+     */
+    private Scan constructScan(ScanQuery query, byte[] resumeAfter, SaltedKeys keys, int bucket) throws IOException {
+        Function<byte[], byte[]> stored = bucket < 0 ? key -> key : key -> keys.encode(bucket, key);
+        Scan scan = new Scan();
+        scan.setReversed(query.isReversed());
+
+        List<Filter> filters = new ArrayList<>(2);
+        if (!Strings.isEmpty(query.getPrefix())) {
+            byte[] prefix = stored.apply(Bytes.toBytes(query.getPrefix()));
+            if (query.isReversed()) {
+                scan.setStartRow(Bytes.unsignedCopyAndIncrement(prefix));
+                filters.add(new PrefixFilter(prefix));
+            } else {
+                scan.setRowPrefixFilter(prefix);
+            }
+        }
+        if (!Strings.isEmpty(query.getFilter())) {
+            filters.add(filterExpressions.toFilter(query.getFilter()));
+        }
+        if (filters.size() == 1) {
+            scan.setFilter(filters.get(0));
+        } else if (filters.size() > 1) {
+            scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filters));
+        }
+        VersionSelection.applyTo(scan, query);
+        if (!Strings.isEmpty(query.getStartRow())) {
+            scan.setStartRow(stored.apply(Bytes.toBytes(query.getStartRow())));
+        }
+        if (!Strings.isEmpty(query.getStopRow())) {
+            scan.setStopRow(stored.apply(Bytes.toBytes(query.getStopRow())));
+        }
+        if (resumeAfter != null) {
+            scan.setStartRow(stored.apply(resumeAfter));
+        }
+        if (bucket >= 0) {
+            // keep the scan within its bucket
+            byte[] low = keys.lowerBound(bucket);
+            byte[] high = keys.upperBound(bucket);
+            if (scan.getStartRow().length == 0) {
+                scan.setStartRow(query.isReversed() ? high : low);
+            }
+            if (scan.getStopRow().length == 0) {
+                scan.setStopRow(query.isReversed() ? low : high);
+            }
+        }
+        if (query.getMaxResultSize() != null) {
+            scan.setMaxResultSize(query.getMaxResultSize());
+        }
+        ColumnProjection.applyTo(scan, query.getColumns());
+
+        return scan;
+    }
+
+    private static String encodeContinuation(byte[] lastRow) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastRow);
+    }
+
+    private static byte[] decodeContinuation(String continuation) {
+        if (Strings.isEmpty(continuation)) {
+            return null;
+        }
+        try {
+            return Base64.getUrlDecoder().decode(continuation);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+    }
+
+    public void createTable(TableDescription tableDescription) throws IOException, LoginException {
+        try (Timer.Context timer = hBaseMetrics.time("createTable");
+            Lease lease = hBaseConnections.lease();
+            Admin admin = lease.getConnection().getAdmin()) {
+
+            HTableDescriptor table = conversionsService.constructTableDescriptor(
+                TableName.valueOf(ensureNamespace(tableDescription.getTableName())), tableDescription);
+            byte[][] splitKeys = conversionsService.constructSplitKeys(tableDescription.getPreSplit());
+            SaltedKeys keys = SaltedKeys.of(table);
+            if (keys.isSalted()) {
+                if (splitKeys != null) {
+                    throw new IllegalArgumentException("Salted tables are split by bucket, pre-split cannot be given");
                 }
+                splitKeys = keys.splitKeys();
             }
+
+            if (splitKeys == null) {
+                admin.createTable(table);
+            } else {
+                admin.createTable(table, splitKeys);
+            }
+            if (!IndexedColumns.of(table).isEmpty()) {
+                IndexService.createIndexTable(admin, table.getTableName());
+            }
+        } finally {
+            tableMetadata.invalidate(ensureNamespace(tableDescription.getTableName()));
+        }
+    }
+
+    public void putRow(String name, RowValue row) throws IOException, LoginException {
+        try (Timer.Context timer = hBaseMetrics.time("putRow");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+
+            Put p = conversionsService.constructPut(row, tableMetadata.saltedKeys(name));
+            indexWriter.write(name, tableMetadata.indexedColumns(name), row.getRowKey(), p);
             table.put(p);
+            hBaseMetrics.written(p);
+        } finally {
+            rowCache.invalidate(name, row.getRowKey());
+        }
+    }
+
+    /**
+     * Add given amounts to counter columns atomically, in one call to the region server.
+     *
+     * @return new values of the counters
+     */
+    public RowValue increment(String name, RowValue row) throws IOException, LoginException {
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        Increment increment = conversionsService.constructIncrement(row, keys);
+        tableMetadata.indexedColumns(name).checkNotIndexed(increment);
+        Result r;
+        try (Timer.Context timer = hBaseMetrics.time("increment");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+            r = table.increment(increment);
+            hBaseMetrics.written(increment);
+        } finally {
+            rowCache.invalidate(name, row.getRowKey());
+        }
+        return conversionsService.constructRowValue(keys.decode(r), ValueEncoding.LONG);
+    }
+
+    /**
+     * Append given values to the current values of the columns atomically.
+     *
+     * @return new values of the columns
+     */
+    public RowValue append(String name, RowValue row, ValueEncoding encoding) throws IOException, LoginException {
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        Append append = conversionsService.constructAppend(row, keys);
+        tableMetadata.indexedColumns(name).checkNotIndexed(append);
+        Result r;
+        try (Timer.Context timer = hBaseMetrics.time("append");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+            r = table.append(append);
+            hBaseMetrics.written(append);
+        } finally {
+            rowCache.invalidate(name, row.getRowKey());
+        }
+        return conversionsService.constructRowValue(keys.decode(r), encoding);
+    }
+
+    /**
+     * Apply puts and deletes to a row atomically. With a condition, they are applied only when
+     * the condition holds, checked atomically with the change on the region server. Puts are
+     * indexed up front like in {@link #putRow}; entries of puts that were not applied are
+     * skipped by lookups.
+     */
+    public MutationResult mutateRow(String name, RowMutation mutation) throws IOException, LoginException {
+        RowMutations rowMutations = conversionsService.constructRowMutations(mutation, tableMetadata.saltedKeys(name));
+        MutationCondition condition = mutation.getCondition();
+        IndexedColumns indexes = tableMetadata.indexedColumns(name);
+        for (Mutation m : rowMutations.getMutations()) {
+            if (m instanceof Put) {
+                indexWriter.write(name, indexes, mutation.getRowKey(), (Put) m);
+            }
+        }
+
+        try (Timer.Context timer = hBaseMetrics.time("mutateRow");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+            boolean applied = true;
+            if (condition == null) {
+                table.mutateRow(rowMutations);
+            } else {
+                applied = checkAndMutate(table, condition, rowMutations);
+            }
+            if (applied) {
+                rowMutations.getMutations().forEach(hBaseMetrics::written);
+            }
+            return new MutationResult(applied);
+        } finally {
+            rowCache.invalidate(name, mutation.getRowKey());
+        }
+    }
+
+    private static boolean checkAndMutate(Table table, MutationCondition condition, RowMutations rowMutations)
+        throws IOException {
+        if (condition.getColumn() == null) {
+            throw new IllegalArgumentException("Condition column is missing");
+        }
+        byte[][] column = ColumnProjection.parse(condition.getColumn());
+        if (column[1] == null) {
+            throw new IllegalArgumentException("Condition column has to be family:qualifier");
+        }
+        CompareOp op = condition.getOperator() == null ? CompareOp.EQUAL : CompareOp.valueOf(condition.getOperator().name());
+        byte[] value = condition.getValue() == null ? null
+            : ValueEncoding.orDefault(condition.getEncoding()).decode(condition.getValue());
+        byte[] row = rowMutations.getRow();
+
+        List<Mutation> mutations = rowMutations.getMutations();
+        if (mutations.size() > 1) {
+            return table.checkAndMutate(row, column[0], column[1], op, value, rowMutations);
+        } else if (mutations.get(0) instanceof Put) {
+            return table.checkAndPut(row, column[0], column[1], op, value, (Put) mutations.get(0));
+        }
+        return table.checkAndDelete(row, column[0], column[1], op, value, (Delete) mutations.get(0));
+    }
+
+    /**
+     * Write rows through a client side buffer, so they are sent to region servers in batches.
+     * Rows that cannot be written are reported back instead of failing the whole batch.
+     */
+    public BatchResult putRows(String name, Iterator<RowValue> rows, Durability durability)
+        throws IOException, LoginException {
+        Durability rowDurability = durability != null ? durability : defaultDurability;
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        try (IndexWriter.Batch index = indexWriter.batch(name, tableMetadata.indexedColumns(name))) {
+            return mutateBuffered(name, "putRows", keys, rows, RowValue::getRowKey, row -> {
+                Put p = conversionsService.constructPut(row, keys);
+                p.setDurability(rowDurability);
+                index.add(row.getRowKey(), p);
+                return p;
+            }, index.isEmpty() ? null : index);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Delete given columns of a row, each either "family" or "family:qualifier", or the whole row
+     * when no columns are given.
+     */
+    public void deleteRow(String name, String rowKey, List<String> columns) throws IOException, LoginException {
+        Delete delete = conversionsService.constructDelete(rowKey, columns, tableMetadata.saltedKeys(name));
+        try (Timer.Context timer = hBaseMetrics.time("deleteRow");
+            Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+            table.delete(delete);
+            hBaseMetrics.deleted();
+        } finally {
+            rowCache.invalidate(name, rowKey);
+        }
+    }
+
+    /**
+     * Delete rows (or given columns of them) through a client side buffer, like {@link #putRows}.
+     */
+    public BatchResult deleteRows(String name, List<String> rowKeys, List<String> columns)
+        throws IOException, LoginException {
+        if (rowKeys == null) {
+            throw new IllegalArgumentException("Row keys are missing");
+        }
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        return mutateBuffered(name, "deleteRows", keys, rowKeys.iterator(), rowKey -> rowKey,
+            rowKey -> conversionsService.constructDelete(rowKey, columns, keys), null);
+    }
+
+    /**
+     * Delete all rows whose keys start with given prefix. Region servers return only the row keys
+     * (first cell of each row, without values) and deletes are sent back in batches, so keys make
+     * one round trip through this service while values never leave the region servers.
+     */
+    public BatchResult deleteByPrefix(String name, String prefix) throws IOException, LoginException {
+        if (Strings.isEmpty(prefix)) {
+            throw new IllegalArgumentException("Prefix is missing");
+        }
+
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        ScanQuery query = new ScanQuery();
+        query.setPrefix(prefix);
+        List<Scan> scans = constructScans(query, null, keys);
+        for (Scan scan : scans) {
+            scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+            scan.setCaching(scanCaching);
+            scan.setCacheBlocks(false);
+        }
+
+        try (Lease lease = hBaseConnections.lease();
+            Table table = lease.getConnection().getTable(TableName.valueOf(name));
+            ResultScanner rs = getScanner(table, scans, false, keys)) {
+            return mutateBuffered(name, "deleteByPrefix", keys, rs.iterator(), r -> Bytes.toString(r.getRow()),
+                r -> new Delete(keys.encode(r.getRow())), null);
+        }
+    }
+
+    /**
+     * Send mutations constructed from given items through a client side buffer. Items that cannot
+     * be converted or written are reported back instead of failing the whole batch, unless region
+     * servers were too busy to take them: then the batch fails, so the client backs off and sends
+     * it again (puts and deletes can be repeated safely).
+     *
+     * @param beforeFlush flushed before any mutations are sent, e.g. index entries that have to be
+     *                    written first; when given, the buffer is flushed only explicitly
+     */
+    private <T> BatchResult mutateBuffered(String name, String operation, SaltedKeys keys, Iterator<T> items,
+        Function<T, String> rowKey, Function<T, Mutation> mutation, Flushable beforeFlush)
+        throws IOException, LoginException {
+        List<RowFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong failedMutations = new AtomicLong();
+        AtomicReference<RetriesExhaustedWithDetailsException> busy = new AtomicReference<>();
+        long submitted = 0;
+        // cached rows are invalidated once the writes are flushed
+        List<String> unflushed = rowCache.isEnabled(name) ? new ArrayList<>() : null;
+
+        BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(name))
+            .writeBufferSize(beforeFlush == null ? writeBufferSize : Long.MAX_VALUE)
+            .listener((e, mutator) -> {
+                for (int i = 0; i < e.getNumExceptions(); i++) {
+                    failures.add(new RowFailure(Bytes.toString(keys.decode(e.getRow(i).getRow())), e.getCause(i).toString()));
+                }
+                failedMutations.addAndGet(e.getNumExceptions());
+                if (ServerBusy.isBusy(e)) {
+                    busy.compareAndSet(null, e);
+                }
+            });
+
+        try (Timer.Context timer = hBaseMetrics.time(operation);
+            Lease lease = hBaseConnections.lease();
+            BufferedMutator mutator = lease.getConnection().getBufferedMutator(params);
+            // closed before the mutator, which sends the rest of the buffer
+            Closeable flushedFirst = beforeFlush == null ? () -> { } : beforeFlush::flush) {
+            long lastFlush = System.currentTimeMillis();
+            long buffered = 0;
+
+            while (items.hasNext()) {
+                T item = items.next();
+                String key = rowKey.apply(item);
+                try {
+                    Mutation m = mutation.apply(item);
+                    mutator.mutate(m);
+                    buffered += m.heapSize();
+                    if (m instanceof Delete) {
+                        hBaseMetrics.deleted();
+                    } else {
+                        hBaseMetrics.written(m);
+                    }
+                    submitted++;
+                    if (unflushed != null) {
+                        unflushed.add(key);
+                    }
+                } catch (IllegalArgumentException e) {
+                    failures.add(new RowFailure(key, e.getMessage()));
+                }
+
+                if (beforeFlush != null && buffered >= writeBufferSize
+                    || flushIntervalMs > 0 && System.currentTimeMillis() - lastFlush >= flushIntervalMs) {
+                    flush(mutator, beforeFlush);
+                    buffered = 0;
+                    lastFlush = System.currentTimeMillis();
+                    if (unflushed != null) {
+                        rowCache.invalidate(name, unflushed);
+                        unflushed.clear();
+                    }
+                }
+            }
+        } finally {
+            if (unflushed != null) {
+                rowCache.invalidate(name, unflushed);
+            }
+        }
+
+        if (busy.get() != null) {
+            throw busy.get();
+        }
+        return new BatchResult(submitted - failedMutations.get(), new ArrayList<>(failures));
+    }
 
+    private static void flush(BufferedMutator mutator, Flushable beforeFlush) throws IOException {
+        if (beforeFlush != null) {
+            beforeFlush.flush();
         }
+        mutator.flush();
     }
 
-    public RowValue getRow(String name, String rowKey) throws IOException, LoginException {
-       Result r = null; 
-       try (Connection connection = hBaseConnectionFactory.connect()) {
-            Table table = connection.getTable(TableName.valueOf(name));
-            Get get = new Get(Bytes.toBytes(rowKey));
-            r = table.get(get);
+    public RowValue getRow(String name, String rowKey, ValueEncoding encoding) throws IOException, LoginException {
+        return getRow(name, rowKey, encoding, new VersionQuery(), new ReadMode());
+    }
+
+    /**
+     * Get given versions of a row's cells, all in one RPC. Only latest versions are cached, and only
+     * when read from the primary replica. Cached rows are returned even for timeline reads, as
+     * writes through this API invalidate them.
+     */
+    public RowValue getRow(String name, String rowKey, ValueEncoding encoding, VersionQuery versions, ReadMode mode)
+        throws IOException, LoginException {
+        boolean cached = !versions.isVersioned() && rowCache.isEnabled(name);
+        if (cached) {
+            Result r = rowCache.get(name, rowKey);
+            if (r != null) {
+                return withStaleness(conversionsService.constructRowValue(r, encoding), mode, false);
+            }
+        }
+
+        long generation = cached ? rowCache.generation(name, rowKey) : 0;
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        Get get = new Get(keys.encode(rowKey));
+        VersionSelection.applyTo(get, versions);
+        get.setConsistency(mode.getConsistency());
+        Result r = null;
+        try (Timer.Context timer = hBaseMetrics.time("getRow");
+            Lease lease = hBaseConnections.lease()) {
+            Connection connection = lease.getConnection();
+            TableName tableName = TableName.valueOf(name);
+            if (mode.isHedge()) {
+                Get timelineGet = new Get(get).setConsistency(Consistency.TIMELINE);
+                r = hedgedReads.read("getRow", () -> get(connection, tableName, get),
+                    () -> get(connection, tableName, timelineGet));
+            } else {
+                r = get(connection, tableName, get);
+            }
+            r = keys.decode(r);
         }
+        hBaseMetrics.read(r);
 
-        return conversionsService.constructRowValue(r);
+        if (cached && !r.isStale()) {
+            rowCache.put(name, rowKey, r, generation);
+        }
+        return withStaleness(conversionsService.constructRowValue(r, encoding, versions.isVersioned()), mode, r.isStale());
+    }
+
+    private static Result get(Connection connection, TableName tableName, Get get) throws IOException {
+        try (Table table = connection.getTable(tableName)) {
+            return table.get(get);
+        }
+    }
+
+    private static RowValue withStaleness(RowValue row, ReadMode mode, boolean stale) {
+        if (row == null || !mode.isTimeline()) {
+            return row;
+        }
+        return new RowValue(row.getRowKey(), row.getColumnFamilies(), null, stale);
+    }
+
+    /**
+     * Fetch many rows in one call - HBase groups the gets by region server. Results are returned
+     * in the order of given keys and rows that don't exist are marked as not found.
+     */
+    public List<RowLookup> getRows(String name, List<String> rowKeys, List<String> columns,
+        ValueEncoding encoding) throws IOException, LoginException {
+        return getRows(name, rowKeys, columns, encoding, new ReadMode());
+    }
+
+    /**
+     * Hedged multi-gets are sent again as a whole.
+     */
+    public List<RowLookup> getRows(String name, List<String> rowKeys, List<String> columns,
+        ValueEncoding encoding, ReadMode mode) throws IOException, LoginException {
+        if (rowKeys == null) {
+            throw new IllegalArgumentException("Row keys are missing");
+        }
+
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        List<Get> gets = new ArrayList<>(rowKeys.size());
+        for (String rowKey : rowKeys) {
+            Get get = new Get(keys.encode(rowKey));
+            ColumnProjection.applyTo(get, columns);
+            get.setConsistency(mode.getConsistency());
+            gets.add(get);
+        }
+
+        Result[] results;
+        try (Timer.Context timer = hBaseMetrics.time("getRows");
+            Lease lease = hBaseConnections.lease()) {
+            Connection connection = lease.getConnection();
+            TableName tableName = TableName.valueOf(name);
+            if (mode.isHedge()) {
+                List<Get> timelineGets = new ArrayList<>(gets.size());
+                for (Get get : gets) {
+                    timelineGets.add(new Get(get).setConsistency(Consistency.TIMELINE));
+                }
+                results = hedgedReads.read("getRows", () -> get(connection, tableName, gets),
+                    () -> get(connection, tableName, timelineGets));
+            } else {
+                results = get(connection, tableName, gets);
+            }
+        }
+        for (Result r : results) {
+            hBaseMetrics.read(r);
+        }
+
+        List<RowLookup> result = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            result.add(RowLookup.of(rowKeys.get(i), conversionsService.constructRowValue(keys.decode(results[i]), encoding),
+                mode.isTimeline() ? results[i].isStale() : null));
+        }
+        return result;
+    }
+
+    private static Result[] get(Connection connection, TableName tableName, List<Get> gets) throws IOException {
+        try (Table table = connection.getTable(tableName)) {
+            return table.get(gets);
+        }
     }
 
     private String ensureNamespace(String tableName) {
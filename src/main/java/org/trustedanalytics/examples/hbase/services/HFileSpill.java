@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Collects cells in memory and writes them out sorted into HFiles, one file per region and
+ * column family on each flush, laid out as LoadIncrementalHFiles expects ({dir}/{family}/{file}).
+ * Files are split at region boundaries known when the import started; if regions split in the
+ * meantime, the files are split again when they are loaded.
+ *
+ * Once all cells are written, the files of each region and family are merged into one: the
+ * loader takes at most hbase.mapreduce.bulkload.max.hfiles.perRegion.perFamily files, and every
+ * loaded file is one more store file to read (and to block writes on) until it is compacted.
+ * Files are written in HFile format version 3, which keeps cell tags such as per-cell TTLs.
+ */
+final class HFileSpill {
+
+    private final Configuration conf;
+    private final CacheConfig cacheConfig;
+    private final FileSystem fs;
+    private final Path dir;
+    private final HTableDescriptor table;
+    private final byte[][] regionEndKeys;
+    private final byte[] taskId;
+    // files written by the flushes, by region and family
+    private final Map<String, List<Path>> runs = new HashMap<>();
+
+    private List<KeyValue> buffer = new ArrayList<>();
+    private long bufferedBytes;
+
+    HFileSpill(Configuration conf, FileSystem fs, Path dir, HTableDescriptor table, byte[][] regionEndKeys,
+        String taskId) {
+        this.conf = new Configuration(conf);
+        this.fs = fs;
+        this.dir = dir;
+        this.table = table;
+        this.regionEndKeys = regionEndKeys;
+        this.taskId = Bytes.toBytes(taskId);
+
+        // written files are read back once at most, don't allocate a block cache for them
+        this.conf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+        this.conf.setInt(HFile.FORMAT_VERSION_KEY, HFile.MIN_FORMAT_VERSION_WITH_TAGS);
+        this.cacheConfig = new CacheConfig(this.conf);
+    }
+
+    void add(KeyValue kv) {
+        buffer.add(kv);
+        bufferedBytes += kv.heapSize();
+    }
+
+    long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /**
+     * @return number of written files
+     */
+    int flush() throws IOException {
+        List<KeyValue> cells = buffer;
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+        cells.sort(KeyValue.COMPARATOR);
+
+        int files = 0;
+        int region = 0;
+        Map<String, StoreFile.Writer> writers = new HashMap<>();
+        try {
+            for (int i = 0; i < cells.size(); i++) {
+                KeyValue kv = cells.get(i);
+                // the same cell given more than once, the sort is stable so the last one wins
+                if (i + 1 < cells.size() && KeyValue.COMPARATOR.compare(kv, cells.get(i + 1)) == 0) {
+                    continue;
+                }
+                if (!isInRegion(kv, region)) {
+                    files += close(writers);
+                    while (!isInRegion(kv, region)) {
+                        region++;
+                    }
+                }
+                String family = Bytes.toString(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength());
+                StoreFile.Writer writer = writers.get(family);
+                if (writer == null) {
+                    writer = createWriter(table.getFamily(Bytes.toBytes(family)));
+                    writers.put(family, writer);
+                    runs.computeIfAbsent(region + "/" + family, key -> new ArrayList<>()).add(writer.getPath());
+                }
+                writer.append(kv);
+            }
+        } finally {
+            files += close(writers);
+        }
+        return files;
+    }
+
+    /**
+     * Merge the files written for each region and family into one.
+     *
+     * @return number of files removed
+     */
+    int merge() throws IOException {
+        int removed = 0;
+        for (List<Path> files : runs.values()) {
+            if (files.size() > 1) {
+                merge(files);
+                removed += files.size() - 1;
+            }
+        }
+        runs.clear();
+        return removed;
+    }
+
+    private void merge(List<Path> files) throws IOException {
+        HColumnDescriptor family = table.getFamily(Bytes.toBytes(files.get(0).getParent().getName()));
+        List<HFile.Reader> readers = new ArrayList<>(files.size());
+        PriorityQueue<Run> heap = new PriorityQueue<>();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                HFile.Reader reader = HFile.createReader(fs, files.get(i), cacheConfig, conf);
+                readers.add(reader);
+                reader.loadFileInfo();
+                Run run = new Run(i, reader.getScanner(false, false));
+                if (run.start()) {
+                    heap.add(run);
+                }
+            }
+
+            StoreFile.Writer writer = createWriter(family);
+            try {
+                Cell last = null;
+                while (!heap.isEmpty()) {
+                    Run run = heap.poll();
+                    // among cells with the same key the one from the latest run comes first and wins
+                    if (last == null || KeyValue.COMPARATOR.compare(last, run.cell) != 0) {
+                        writer.append(run.cell);
+                        last = run.cell;
+                    }
+                    if (run.next()) {
+                        heap.add(run);
+                    }
+                }
+            } finally {
+                close(writer);
+            }
+        } finally {
+            for (HFile.Reader reader : readers) {
+                reader.close(false);
+            }
+        }
+        for (Path file : files) {
+            fs.delete(file, false);
+        }
+    }
+
+    private boolean isInRegion(KeyValue kv, int region) {
+        byte[] endKey = regionEndKeys[region];
+        return endKey.length == 0
+            || Bytes.compareTo(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), endKey, 0, endKey.length) < 0;
+    }
+
+    private StoreFile.Writer createWriter(HColumnDescriptor family) throws IOException {
+        HFileContext context = new HFileContextBuilder()
+            .withCompression(family.getCompressionType())
+            .withChecksumType(HStore.getChecksumType(conf))
+            .withBytesPerCheckSum(HStore.getBytesPerChecksum(conf))
+            .withBlockSize(family.getBlocksize())
+            .withDataBlockEncoding(family.getDataBlockEncoding())
+            .withIncludesTags(true)
+            .build();
+        return new StoreFile.WriterBuilder(conf, cacheConfig, fs)
+            .withOutputDir(new Path(dir, family.getNameAsString()))
+            .withBloomType(family.getBloomFilterType())
+            .withComparator(KeyValue.COMPARATOR)
+            .withFileContext(context)
+            .build();
+    }
+
+    private int close(Map<String, StoreFile.Writer> writers) throws IOException {
+        int closed = 0;
+        for (StoreFile.Writer writer : writers.values()) {
+            close(writer);
+            closed++;
+        }
+        writers.clear();
+        return closed;
+    }
+
+    private void close(StoreFile.Writer writer) throws IOException {
+        writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+        writer.appendFileInfo(StoreFile.BULKLOAD_TASK_KEY, taskId);
+        writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY, Bytes.toBytes(true));
+        writer.appendTrackedTimestampsToMetadata();
+        writer.close();
+    }
+
+    /**
+     * Position in one of the sorted files being merged.
+     */
+    private static final class Run implements Comparable<Run> {
+        private final int index;
+        private final HFileScanner scanner;
+        private Cell cell;
+
+        private Run(int index, HFileScanner scanner) {
+            this.index = index;
+            this.scanner = scanner;
+        }
+
+        private boolean start() throws IOException {
+            return read(scanner.seekTo());
+        }
+
+        private boolean next() throws IOException {
+            return read(scanner.next());
+        }
+
+        private boolean read(boolean positioned) {
+            if (positioned) {
+                // the scanner's cells share its block buffer, keep a copy
+                cell = KeyValueUtil.copyToNewKeyValue(scanner.getKeyValue());
+            }
+            return positioned;
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            int result = KeyValue.COMPARATOR.compare(cell, other.cell);
+            return result != 0 ? result : Integer.compare(other.index, index);
+        }
+    }
+}
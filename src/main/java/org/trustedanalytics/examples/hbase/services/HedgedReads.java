@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedged reads: the read is sent once and, when it takes longer than the reads.hedge.percentile
+ * of recent latencies of the same operation, sent once more. The first successful answer wins
+ * and the other request is cancelled. When the hedging pool is full reads are sent only once.
+ */
+@Component
+public class HedgedReads {
+
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Autowired
+    ThreadPoolTaskExecutor hedgedReadExecutor;
+
+    @Value("${reads.hedge.percentile}")
+    private double percentile;
+
+    @Value("${reads.hedge.minDelayMs}")
+    private long minDelayMillis;
+
+    private final ConcurrentMap<String, Delay> delays = new ConcurrentHashMap<>();
+    private Counter sent;
+    private Counter won;
+    private Counter skipped;
+
+    @PostConstruct
+    public void init() {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalStateException("Hedge percentile has to be between 0 and 1");
+        }
+        sent = metrics.counter("hbase.reads.hedge.sent");
+        won = metrics.counter("hbase.reads.hedge.won");
+        skipped = metrics.counter("hbase.reads.hedge.skipped");
+    }
+
+    /**
+     * @param operation HBaseMetrics operation whose latencies decide when to hedge
+     * @param primary   the read
+     * @param hedge     the same read, possibly served by a region replica
+     */
+    public <T> T read(String operation, Callable<T> primary, Callable<T> hedge) throws IOException {
+        CompletionService<T> completion = new ExecutorCompletionService<>(hedgedReadExecutor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        try {
+            futures.add(completion.submit(primary));
+        } catch (RejectedExecutionException e) {
+            skipped.inc();
+            return call(primary);
+        }
+
+        try {
+            Future<T> first = completion.poll(delayNanos(operation), TimeUnit.NANOSECONDS);
+            if (first != null) {
+                return get(first);
+            }
+            try {
+                futures.add(completion.submit(hedge));
+                sent.inc();
+            } catch (RejectedExecutionException e) {
+                skipped.inc();
+                return get(futures.get(0));
+            }
+
+            // the first read that succeeds, or the failure of the last one
+            IOException failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                Future<T> done = completion.take();
+                try {
+                    T result = get(done);
+                    if (done == futures.get(1)) {
+                        won.inc();
+                    }
+                    return result;
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hedged read");
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private long delayNanos(String operation) {
+        long now = System.nanoTime();
+        Delay delay = delays.get(operation);
+        if (delay == null || now - delay.computed > DELAY_REFRESH_NANOS) {
+            double latency = metrics.timer("hbase.operations." + operation).getSnapshot().getValue(percentile);
+            delay = new Delay(Math.max(TimeUnit.MILLISECONDS.toNanos(minDelayMillis), (long) latency), now);
+            delays.put(operation, delay);
+        }
+        return delay.nanos;
+    }
+
+    private static <T> T call(Callable<T> read) throws IOException {
+        try {
+            return read.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static final class Delay {
+        private final long nanos;
+        private final long computed;
+
+        private Delay(long nanos, long computed) {
+            this.nanos = nanos;
+            this.computed = computed;
+        }
+    }
+}
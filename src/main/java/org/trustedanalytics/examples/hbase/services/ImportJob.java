@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.fs.Path;
+import org.trustedanalytics.examples.hbase.model.ImportStatus;
+import org.trustedanalytics.examples.hbase.model.ImportStatus.State;
+import org.trustedanalytics.examples.hbase.model.RowFailure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of a bulk import, updated by the thread running it and read by status requests.
+ */
+final class ImportJob {
+
+    private final String id;
+    private final String tableName;
+    private final Path stagingDir;
+    private final int maxFailures;
+
+    private volatile State state = State.WRITING;
+    private volatile long records;
+    private volatile long cells;
+    private volatile long bytes;
+    private volatile int hfiles;
+    private volatile long rejected;
+    private volatile String error;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    ImportJob(String id, String tableName, Path stagingDir, int maxFailures) {
+        this.id = id;
+        this.tableName = tableName;
+        this.stagingDir = stagingDir;
+        this.maxFailures = maxFailures;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    Path getStagingDir() {
+        return stagingDir;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void fail(State state, Exception e) {
+        this.error = e.toString();
+        this.state = state;
+    }
+
+    void recordWritten(long cells, long bytes) {
+        this.records++;
+        this.cells += cells;
+        this.bytes += bytes;
+    }
+
+    void filesWritten(int files) {
+        this.hfiles += files;
+    }
+
+    void reject(String rowKey, String message) {
+        rejected++;
+        synchronized (failures) {
+            if (failures.size() < maxFailures) {
+                failures.add(new RowFailure(rowKey, message));
+            }
+        }
+    }
+
+    boolean isRunning() {
+        return state == State.WRITING || state == State.LOADING;
+    }
+
+    ImportStatus status() {
+        List<RowFailure> failuresCopy;
+        synchronized (failures) {
+            failuresCopy = new ArrayList<>(failures);
+        }
+        return new ImportStatus(id, tableName, state, records, cells, bytes, hfiles, rejected, failuresCopy, error);
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.BatchResult;
+import org.trustedanalytics.examples.hbase.model.CounterIncrement;
+import org.trustedanalytics.examples.hbase.model.RowFailure;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects counter increments for a short window and sends them together, adding up
+ * increments of the same cell first. A hot counter incremented by many clients costs the
+ * region server one increment per window instead of one per request.
+ *
+ * Callers are answered once the window they joined has been written. Increments are not
+ * idempotent - a request that fails may still have been partly applied. Only requests none of
+ * whose increments were written because region servers were busy fail as a whole.
+ */
+@Component
+// timer contexts are only opened to be closed, they time the try blocks
+@SuppressWarnings("try")
+public class IncrementBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementBatcher.class);
+
+    @Autowired
+    HBaseConnectionManager hBaseConnections;
+
+    @Autowired
+    HBaseMetrics hBaseMetrics;
+
+    @Autowired
+    RowCache rowCache;
+
+    @Autowired
+    TableMetadataCache tableMetadata;
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Value("${increments.windowMs}")
+    private long windowMillis;
+
+    @Value("${increments.maxPendingCells}")
+    private int maxPendingCells;
+
+    private final Object lock = new Object();
+    private Batch current = new Batch();
+    private ScheduledExecutorService scheduler;
+
+    private Counter received;
+    private Counter sent;
+
+    @PostConstruct
+    public void init() {
+        received = metrics.counter("increments.received");
+        sent = metrics.counter("increments.sent");
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "increment-batcher"));
+        scheduler.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(windowMillis * 10, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    /**
+     * Queue increments for the next write.
+     *
+     * @return completed when the increments are written, with rows that failed
+     */
+    public CompletableFuture<BatchResult> add(String name, List<CounterIncrement> increments)
+        throws IOException, LoginException {
+        IndexedColumns indexes = tableMetadata.indexedColumns(name);
+        for (CounterIncrement increment : increments) {
+            if (increment.getRowKey() == null || increment.getColumn() == null) {
+                throw new IllegalArgumentException("Row key or column is missing");
+            }
+            byte[][] column = ColumnProjection.parse(increment.getColumn());
+            if (column[1] == null) {
+                throw new IllegalArgumentException("Counter column has to be family:qualifier");
+            }
+            if (indexes.isIndexed(column[0], column[1])) {
+                throw new IllegalArgumentException("Column " + increment.getColumn() + " is indexed, it can only be put");
+            }
+        }
+
+        Batch batch;
+        synchronized (lock) {
+            if (current.cells + increments.size() > maxPendingCells) {
+                throw new RejectedExecutionException("Too many pending increments");
+            }
+            batch = current;
+            increments.forEach(increment -> batch.add(name, increment));
+        }
+        received.inc(increments.size());
+
+        return batch.done.thenApply(failures -> {
+            List<RowFailure> rowFailures = new ArrayList<>();
+            for (CounterIncrement increment : increments) {
+                String failure = failures.get(new RowId(name, increment.getRowKey()));
+                if (failure != null) {
+                    rowFailures.add(new RowFailure(increment.getRowKey(), failure));
+                }
+            }
+            IOException busy = batch.busy.get(name);
+            if (busy != null && rowFailures.size() == increments.size()) {
+                // nothing was applied, so the increments can be sent again after a while
+                throw new CompletionException(busy);
+            }
+            return new BatchResult(increments.size() - rowFailures.size(), rowFailures);
+        });
+    }
+
+    void flush() {
+        Batch batch;
+        synchronized (lock) {
+            if (current.cells == 0) {
+                return;
+            }
+            batch = current;
+            current = new Batch();
+        }
+
+        Map<RowId, String> failures = new HashMap<>();
+        try (Timer.Context timer = hBaseMetrics.time("incrementBatch");
+            Lease lease = hBaseConnections.lease()) {
+            for (Map.Entry<String, Map<String, Map<String, Long>>> table : batch.tables.entrySet()) {
+                try {
+                    write(lease, table.getKey(), table.getValue(), failures, batch.busy);
+                } catch (IOException | LoginException | RuntimeException e) {
+                    LOG.error("Cannot write increments of {}.", table.getKey(), e);
+                    failAll(table.getKey(), table.getValue(), e, failures);
+                }
+            }
+        } catch (IOException | LoginException | RuntimeException e) {
+            LOG.error("Cannot write increments.", e);
+            batch.tables.forEach((name, rows) -> failAll(name, rows, e, failures));
+        } finally {
+            batch.done.complete(failures);
+        }
+    }
+
+    private void write(Lease lease, String name, Map<String, Map<String, Long>> rows, Map<RowId, String> failures,
+        Map<String, IOException> busy) throws IOException, LoginException {
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        List<String> rowKeys = new ArrayList<>(rows.size());
+        List<Increment> increments = new ArrayList<>(rows.size());
+        rows.forEach((rowKey, columns) -> {
+            rowKeys.add(rowKey);
+            Increment increment = new Increment(keys.encode(rowKey));
+            columns.forEach((column, amount) -> {
+                byte[][] parsed = ColumnProjection.parse(column);
+                increment.addColumn(parsed[0], parsed[1], amount);
+            });
+            increments.add(increment);
+        });
+        Object[] results = new Object[increments.size()];
+        try (Table table = lease.getConnection().getTable(TableName.valueOf(name))) {
+            table.batch(increments, results);
+        } catch (IOException e) {
+            // failed increments are reported in results
+            LOG.warn("Some increments of {} failed.", name, e);
+            if (ServerBusy.isBusy(e)) {
+                busy.put(name, e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (int i = 0; i < increments.size(); i++) {
+                String rowKey = rowKeys.get(i);
+                if (results[i] == null || results[i] instanceof Throwable) {
+                    failures.put(new RowId(name, rowKey), results[i] == null ? "Not written" : results[i].toString());
+                } else {
+                    sent.inc(increments.get(i).size());
+                }
+                rowCache.invalidate(name, rowKey);
+            }
+        }
+    }
+
+    private static void failAll(String name, Map<String, Map<String, Long>> rows, Exception e, Map<RowId, String> failures) {
+        rows.keySet().forEach(row -> failures.put(new RowId(name, row), e.toString()));
+    }
+
+    private static final class Batch {
+        // table -> row -> column -> amount
+        private final Map<String, Map<String, Map<String, Long>>> tables = new LinkedHashMap<>();
+        private final CompletableFuture<Map<RowId, String>> done = new CompletableFuture<>();
+        // tables whose region servers were too busy to take some of the increments
+        private final Map<String, IOException> busy = new HashMap<>();
+        private int cells;
+
+        private void add(String name, CounterIncrement increment) {
+            Map<String, Long> columns = tables.computeIfAbsent(name, t -> new LinkedHashMap<>())
+                .computeIfAbsent(increment.getRowKey(), r -> new LinkedHashMap<>());
+            if (!columns.containsKey(increment.getColumn())) {
+                cells++;
+            }
+            columns.merge(increment.getColumn(), increment.getAmount(), Long::sum);
+        }
+    }
+
+    private static final class RowId {
+        private final String table;
+        private final String rowKey;
+
+        private RowId(String table, String rowKey) {
+            this.table = table;
+            this.rowKey = rowKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RowId)) {
+                return false;
+            }
+            RowId rowId = (RowId) o;
+            return table.equals(rowId.table) && rowKey.equals(rowId.rowKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * table.hashCode() + rowKey.hashCode();
+        }
+    }
+}
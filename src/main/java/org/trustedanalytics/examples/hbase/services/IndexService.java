@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.IndexDescription;
+import org.trustedanalytics.examples.hbase.model.IndexRebuildResult;
+import org.trustedanalytics.examples.hbase.model.RegionScanProgress;
+import org.trustedanalytics.examples.hbase.model.RowValue;
+import org.trustedanalytics.examples.hbase.model.ScanQuery;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+
+import javax.annotation.PostConstruct;
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Declaring, rebuilding and querying secondary indexes, see {@link IndexedColumns}. Index entries
+ * are written along with the rows by {@link IndexWriter}.
+ */
+@Service
+// timer contexts are only opened to be closed, they time the try blocks
+@SuppressWarnings("try")
+public class IndexService {
+
+    @Autowired
+    HBaseConnectionManager hBaseConnections;
+
+    @Autowired
+    HBaseService hbaseService;
+
+    @Autowired
+    TableMetadataCache tableMetadata;
+
+    @Autowired
+    ConversionsService conversionsService;
+
+    @Autowired
+    HBaseMetrics hBaseMetrics;
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Value("${results.pageSize}")
+    private int pageSize;
+
+    @Value("${index.maxLookupRows}")
+    private int maxLookupRows;
+
+    @Value("${index.rebuildCaching}")
+    private int rebuildCaching;
+
+    @Value("${index.staleGraceMs}")
+    private long staleGraceMs;
+
+    private Counter staleEntries;
+
+    @PostConstruct
+    public void init() {
+        staleEntries = metrics.counter("index.entries.stale");
+    }
+
+    public List<IndexDescription> listIndexes(String name) throws IOException, LoginException {
+        return tableMetadata.indexedColumns(name).describe();
+    }
+
+    /**
+     * Declare an index and create the index table if needed. Rows written before the index was
+     * declared, or before every instance of this service knows about it (cache.tables.ttlSeconds),
+     * are indexed by {@link #rebuild}.
+     */
+    public void createIndex(String name, IndexDescription index) throws IOException, LoginException {
+        TableName tableName = TableName.valueOf(name);
+        try (Timer.Context timer = hBaseMetrics.time("createIndex");
+            Lease lease = hBaseConnections.lease();
+            Admin admin = lease.getConnection().getAdmin()) {
+            HTableDescriptor table = admin.getTableDescriptor(tableName);
+            IndexedColumns.applyTo(table, index);
+            byte[] family = ColumnProjection.parse(index.getColumn())[0];
+            if (!table.hasFamily(family)) {
+                throw new IllegalArgumentException("Column family " + Bytes.toString(family) + " does not exist");
+            }
+            createIndexTable(admin, tableName);
+            admin.modifyTable(tableName, table);
+        } finally {
+            tableMetadata.invalidate(name);
+        }
+    }
+
+    /**
+     * Remove an index and its entries; the index table is dropped with the last index.
+     */
+    public void dropIndex(String name, String column) throws IOException, LoginException {
+        IndexedColumns.Index index = tableMetadata.indexedColumns(name).get(column);
+        TableName tableName = TableName.valueOf(name);
+        TableName indexTable = IndexedColumns.indexTable(tableName);
+        try (Timer.Context timer = hBaseMetrics.time("dropIndex");
+            Lease lease = hBaseConnections.lease();
+            Admin admin = lease.getConnection().getAdmin()) {
+            HTableDescriptor table = admin.getTableDescriptor(tableName);
+            IndexedColumns.removeFrom(table, column);
+            admin.modifyTable(tableName, table);
+
+            if (IndexedColumns.of(table).isEmpty()) {
+                admin.disableTable(indexTable);
+                admin.deleteTable(indexTable);
+            } else {
+                Scan scan = new Scan();
+                scan.setRowPrefixFilter(index.prefix());
+                scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+                scan.setCaching(rebuildCaching);
+                scan.setCacheBlocks(false);
+                try (Table entries = lease.getConnection().getTable(indexTable);
+                    ResultScanner rs = entries.getScanner(scan);
+                    BufferedMutator mutator = lease.getConnection().getBufferedMutator(indexTable)) {
+                    for (Result r : rs) {
+                        mutator.mutate(new Delete(r.getRow()));
+                    }
+                }
+            }
+        } finally {
+            tableMetadata.invalidate(name);
+        }
+    }
+
+    static void createIndexTable(Admin admin, TableName tableName) throws IOException {
+        TableName indexTable = IndexedColumns.indexTable(tableName);
+        if (!admin.tableExists(indexTable)) {
+            admin.createTable(IndexedColumns.indexTableDescriptor(indexTable));
+        }
+    }
+
+    /**
+     * Index every row holding the column, with one concurrent sub-scan per region that reads only
+     * the column. Entries that already exist are written again.
+     */
+    public IndexRebuildResult rebuild(String name, String column, Integer parallelism) throws IOException, LoginException {
+        IndexedColumns.Index index = tableMetadata.indexedColumns(name).get(column);
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        List<Scan> scans = hbaseService.constructScans(new ScanQuery(), null, keys);
+        Scan scan = scans.get(0);
+        scan.addColumn(index.family, index.qualifier);
+        scan.setMaxVersions(1);
+        scan.setCacheBlocks(false);
+        scan.setCaching(rebuildCaching);
+
+        AtomicLong entries = new AtomicLong();
+        List<RegionScanProgress> progress;
+        try (Timer.Context timer = hBaseMetrics.time("rebuildIndex");
+            Lease lease = hBaseConnections.lease();
+            BufferedMutator mutator = lease.getConnection().getBufferedMutator(
+                IndexedColumns.indexTable(TableName.valueOf(name)))) {
+            ParallelScan parallelScan = hbaseService.constructParallelScan(name, scans, parallelism);
+            progress = parallelScan.runLocal(() -> r -> {
+                byte[] value = r.getValue(index.family, index.qualifier);
+                if (value != null) {
+                    Put entry = index.entry(value, keys.decode(r.getRow()));
+                    synchronized (mutator) {
+                        mutator.mutate(entry);
+                    }
+                    entries.incrementAndGet();
+                }
+            });
+        }
+
+        List<RegionScanProgress> failed = progress.stream()
+            .filter(region -> region.getState() != RegionScanProgress.State.COMPLETED)
+            .collect(Collectors.toList());
+        return new IndexRebuildResult(entries.get(), failed);
+    }
+
+    /**
+     * Rows whose column currently has given value: index entries are read with one prefix scan
+     * and their rows with one multi-get. Entries left behind by overwritten or deleted rows are
+     * skipped and deleted, unless the row was indexed again since they were read. Entries younger
+     * than index.staleGraceMs are only skipped: their row may still be on its way, as entries are
+     * written before the row.
+     *
+     * @param limit max number of index entries read, so fewer rows can come back
+     */
+    public List<RowValue> lookup(String name, String column, String value, ValueEncoding valueEncoding,
+        ValueEncoding encoding, Integer limit) throws IOException, LoginException {
+        if (value == null) {
+            throw new IllegalArgumentException("Value is missing");
+        }
+        int max = limit == null ? pageSize : limit;
+        if (max < 1 || max > maxLookupRows) {
+            throw new IllegalArgumentException("Limit has to be between 1 and " + maxLookupRows);
+        }
+        IndexedColumns.Index index = tableMetadata.indexedColumns(name).get(column);
+        SaltedKeys keys = tableMetadata.saltedKeys(name);
+        byte[] indexed = valueEncoding.decode(value);
+
+        Scan scan = new Scan();
+        scan.setRowPrefixFilter(index.prefix(indexed));
+        scan.setFilter(new KeyOnlyFilter());
+        scan.setCaching(max);
+        TableName tableName = TableName.valueOf(name);
+
+        try (Timer.Context timer = hBaseMetrics.time("indexLookup");
+            Lease lease = hBaseConnections.lease();
+            Table entries = lease.getConnection().getTable(IndexedColumns.indexTable(tableName))) {
+            List<Cell> hits = new ArrayList<>();
+            try (ResultScanner rs = entries.getScanner(scan)) {
+                for (Result r = rs.next(); r != null && hits.size() < max; r = rs.next()) {
+                    hits.add(r.rawCells()[0]);
+                }
+            }
+            if (hits.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<Get> gets = new ArrayList<>(hits.size());
+            for (Cell hit : hits) {
+                gets.add(new Get(keys.encode(IndexedColumns.rowKey(cloneRow(hit)))));
+            }
+            Result[] rows;
+            try (Table table = lease.getConnection().getTable(tableName)) {
+                rows = table.get(gets);
+            }
+
+            List<RowValue> result = new ArrayList<>(rows.length);
+            List<Delete> stale = new ArrayList<>();
+            long graceStart = System.currentTimeMillis() - staleGraceMs;
+            for (int i = 0; i < rows.length; i++) {
+                byte[] current = rows[i].getValue(index.family, index.qualifier);
+                if (current != null && Bytes.equals(current, indexed)) {
+                    hBaseMetrics.read(rows[i]);
+                    result.add(conversionsService.constructRowValue(keys.decode(rows[i]), encoding));
+                } else if (hits.get(i).getTimestamp() < graceStart) {
+                    // only the version read, an entry written again meanwhile stays
+                    stale.add(new Delete(cloneRow(hits.get(i)), hits.get(i).getTimestamp()));
+                }
+            }
+            if (!stale.isEmpty()) {
+                entries.delete(stale);
+                staleEntries.inc(stale.size());
+            }
+            return result;
+        }
+    }
+
+    private static byte[] cloneRow(Cell cell) {
+        return Bytes.copy(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+    }
+}
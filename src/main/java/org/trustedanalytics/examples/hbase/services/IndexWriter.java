@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.IndexDescription.Mode;
+
+import javax.annotation.PostConstruct;
+import javax.security.auth.login.LoginException;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes index entries of rows being put. Entries of synchronous indexes are written before the
+ * row (before a batch of rows is reported as written), so a row that was written is always found,
+ * and a failed index write fails the put.
+ * Entries of asynchronous indexes are written in the background on a pool configured with
+ * bulkhead.index.*; when it is full or the write fails they are dropped and counted under
+ * index.entries.dropped - rebuild the index to add them.
+ */
+@Component
+public class IndexWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexWriter.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    HBaseConnectionManager hBaseConnections;
+
+    @Autowired
+    ThreadPoolTaskExecutor indexExecutor;
+
+    @Autowired
+    MetricRegistry metrics;
+
+    private Counter written;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        written = metrics.counter("index.entries.written");
+        dropped = metrics.counter("index.entries.dropped");
+    }
+
+    /**
+     * Index a row that is going to be put.
+     */
+    public void write(String name, IndexedColumns indexes, String rowKey, Put put) throws IOException, LoginException {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Put> sync = indexes.entries(Bytes.toBytes(rowKey), put, Mode.SYNC);
+        if (!sync.isEmpty()) {
+            try (Lease lease = hBaseConnections.lease();
+                Table table = lease.getConnection().getTable(IndexedColumns.indexTable(TableName.valueOf(name)))) {
+                table.put(sync);
+                written.inc(sync.size());
+            }
+        }
+        writeAsync(name, indexes.entries(Bytes.toBytes(rowKey), put, Mode.ASYNC));
+    }
+
+    /**
+     * Index many rows, entries are written in batches. Flush the batch before the rows are sent,
+     * close it before they are reported as written.
+     */
+    public Batch batch(String name, IndexedColumns indexes) throws IOException, LoginException {
+        return new Batch(name, indexes);
+    }
+
+    private void writeAsync(String name, List<Put> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            indexExecutor.execute(() -> {
+                try (Lease lease = hBaseConnections.lease();
+                    Table table = lease.getConnection().getTable(IndexedColumns.indexTable(TableName.valueOf(name)))) {
+                    table.put(entries);
+                    written.inc(entries.size());
+                } catch (IOException | LoginException | RuntimeException e) {
+                    LOG.error("Cannot write {} index entries of {}.", entries.size(), name, e);
+                    dropped.inc(entries.size());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Too many index writes pending, {} entries of {} dropped.", entries.size(), name);
+            dropped.inc(entries.size());
+        }
+    }
+
+    public final class Batch implements Closeable, Flushable {
+        private final String name;
+        private final IndexedColumns indexes;
+        private final List<Put> sync = new ArrayList<>();
+        private final List<Put> async = new ArrayList<>();
+        private final Lease lease;
+        private final Table table;
+
+        private Batch(String name, IndexedColumns indexes) throws IOException, LoginException {
+            this.name = name;
+            this.indexes = indexes;
+            if (indexes.isEmpty()) {
+                this.lease = null;
+                this.table = null;
+            } else {
+                this.lease = hBaseConnections.lease();
+                this.table = lease.getConnection().getTable(IndexedColumns.indexTable(TableName.valueOf(name)));
+            }
+        }
+
+        /**
+         * @throws UncheckedIOException when writing entries of a full batch fails
+         */
+        public void add(String rowKey, Put put) {
+            if (indexes.isEmpty()) {
+                return;
+            }
+            sync.addAll(indexes.entries(Bytes.toBytes(rowKey), put, Mode.SYNC));
+            async.addAll(indexes.entries(Bytes.toBytes(rowKey), put, Mode.ASYNC));
+            try {
+                flush(BATCH_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public boolean isEmpty() {
+            return indexes.isEmpty();
+        }
+
+        /**
+         * Write all entries added so far.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (table != null) {
+                flush(1);
+            }
+        }
+
+        private void flush(int minSize) throws IOException {
+            if (!sync.isEmpty() && sync.size() >= minSize) {
+                table.put(sync);
+                written.inc(sync.size());
+                sync.clear();
+            }
+            if (!async.isEmpty() && async.size() >= minSize) {
+                writeAsync(name, new ArrayList<>(async));
+                async.clear();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (table == null) {
+                return;
+            }
+            try {
+                flush(1);
+            } finally {
+                try {
+                    table.close();
+                } finally {
+                    lease.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.trustedanalytics.examples.hbase.model.IndexDescription;
+import org.trustedanalytics.examples.hbase.model.IndexDescription.Mode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Secondary indexes of a table and the key layout of their entries. Each indexed column is kept
+ * as a table descriptor value; entries of all indexes of a table are rows of one companion table
+ * {table}_index, keyed by the column, the value and the natural key of the indexed row, each
+ * of the first two prefixed with its length. All rows with a given value are therefore one
+ * prefix scan away.
+ *
+ * Entries are only ever added when rows are written. Entries of overwritten values and deleted
+ * rows stay behind and have to be checked against the row when read, see {@link IndexService}.
+ * Appends and increments compute the new value on the region server, so they cannot change
+ * indexed columns, and tables with indexes cannot be bulk imported into.
+ */
+public final class IndexedColumns {
+
+    /**
+     * Prefix of table descriptor values, followed by the indexed column and holding the index mode.
+     */
+    public static final String PREFIX = "SECONDARY_INDEX:";
+
+    /**
+     * The only family of index tables, entries have a single empty cell.
+     */
+    public static final byte[] FAMILY = Bytes.toBytes("i");
+
+    static final IndexedColumns NONE = new IndexedColumns(Collections.emptyList());
+
+    private final List<Index> indexes;
+
+    private IndexedColumns(List<Index> indexes) {
+        this.indexes = indexes;
+    }
+
+    public static IndexedColumns of(List<IndexDescription> descriptions) {
+        if (descriptions == null || descriptions.isEmpty()) {
+            return NONE;
+        }
+        return new IndexedColumns(descriptions.stream().map(Index::new).collect(Collectors.toList()));
+    }
+
+    public static IndexedColumns of(HTableDescriptor table) {
+        List<IndexDescription> descriptions = new ArrayList<>();
+        for (ImmutableBytesWritable key : table.getValues().keySet()) {
+            String name = Bytes.toString(key.get(), key.getOffset(), key.getLength());
+            if (name.startsWith(PREFIX)) {
+                descriptions.add(new IndexDescription(name.substring(PREFIX.length()), Mode.valueOf(table.getValue(name))));
+            }
+        }
+        return of(descriptions);
+    }
+
+    /**
+     * Declare given index in the table descriptor.
+     */
+    public static void applyTo(HTableDescriptor table, IndexDescription description) {
+        Index index = new Index(description);
+        table.setValue(PREFIX + index.name, index.mode.name());
+    }
+
+    public static void removeFrom(HTableDescriptor table, String column) {
+        table.remove(PREFIX + column);
+    }
+
+    public static TableName indexTable(TableName table) {
+        return TableName.valueOf(table.getNamespaceAsString(), table.getQualifierAsString() + "_index");
+    }
+
+    public static HTableDescriptor indexTableDescriptor(TableName indexTable) {
+        return new HTableDescriptor(indexTable).addFamily(new HColumnDescriptor(FAMILY));
+    }
+
+    public boolean isEmpty() {
+        return indexes.isEmpty();
+    }
+
+    public List<IndexDescription> describe() {
+        return indexes.stream().map(index -> new IndexDescription(index.name, index.mode)).collect(Collectors.toList());
+    }
+
+    Index get(String column) {
+        for (Index index : indexes) {
+            if (index.name.equals(column)) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Column " + column + " is not indexed");
+    }
+
+    boolean isIndexed(byte[] family, byte[] qualifier) {
+        for (Index index : indexes) {
+            if (Bytes.equals(index.family, family) && Bytes.equals(index.qualifier, qualifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @throws IllegalArgumentException when given append or increment changes an indexed column
+     */
+    void checkNotIndexed(Mutation mutation) {
+        for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                if (isIndexed(CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell))) {
+                    throw new IllegalArgumentException("Column " + Bytes.toString(CellUtil.cloneFamily(cell)) + ":"
+                        + Bytes.toString(CellUtil.cloneQualifier(cell)) + " is indexed, it can only be put");
+                }
+            }
+        }
+    }
+
+    /**
+     * Entries of the indexes with given mode for values written by given put.
+     *
+     * @param rowKey natural key of the row, the put's row may be salted
+     */
+    List<Put> entries(byte[] rowKey, Put put, Mode mode) {
+        List<Put> entries = new ArrayList<>(indexes.size());
+        for (Index index : indexes) {
+            if (index.mode != mode) {
+                continue;
+            }
+            List<Cell> cells = put.get(index.family, index.qualifier);
+            if (!cells.isEmpty()) {
+                entries.add(index.entry(CellUtil.cloneValue(cells.get(cells.size() - 1)), rowKey));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Natural key of the row an index entry points to.
+     */
+    static byte[] rowKey(byte[] entry) {
+        int columnLength = Bytes.toInt(entry, 0);
+        int valueLength = Bytes.toInt(entry, Bytes.SIZEOF_INT + columnLength);
+        return Arrays.copyOfRange(entry, 2 * Bytes.SIZEOF_INT + columnLength + valueLength, entry.length);
+    }
+
+    private static byte[] lengthPrefixed(byte[] bytes) {
+        return Bytes.add(Bytes.toBytes(bytes.length), bytes);
+    }
+
+    static final class Index {
+        final String name;
+        final byte[] family;
+        final byte[] qualifier;
+        final Mode mode;
+        private final byte[] prefix;
+
+        private Index(IndexDescription description) {
+            if (description.getColumn() == null) {
+                throw new IllegalArgumentException("Indexed column is missing");
+            }
+            byte[][] parsed = ColumnProjection.parse(description.getColumn());
+            if (parsed[1] == null) {
+                throw new IllegalArgumentException("Indexed column has to be family:qualifier");
+            }
+            this.name = description.getColumn();
+            this.family = parsed[0];
+            this.qualifier = parsed[1];
+            this.mode = description.getMode() == null ? Mode.SYNC : description.getMode();
+            this.prefix = lengthPrefixed(Bytes.toBytes(name));
+        }
+
+        /**
+         * Start of all entries of this index.
+         */
+        byte[] prefix() {
+            return prefix;
+        }
+
+        /**
+         * Start of the entries of rows with given value.
+         */
+        byte[] prefix(byte[] value) {
+            return Bytes.add(prefix, lengthPrefixed(value));
+        }
+
+        Put entry(byte[] value, byte[] rowKey) {
+            return new Put(Bytes.add(prefix(value), rowKey))
+                .addColumn(FAMILY, HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.RegionScanProgress;
+import org.trustedanalytics.examples.hbase.model.RegionScanProgress.State;
+
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Scans key ranges of a table concurrently, one sub-scan per region, and hands the rows to
+ * a single consumer on the calling thread.
+ *
+ * At most {@code parallelism} regions are scanned at the same time; the next region is started
+ * when one is finished, in key order. Rows are passed through bounded queues, so fast regions
+ * wait for the consumer instead of piling rows up on the heap. In ordered mode every region has
+ * its own queue and the queues are drained one after another, which returns rows in key order;
+ * in unordered mode all regions share one queue and rows are returned as soon as they arrive.
+ *
+ * Alternatively each region's rows can be handed to a handler of its own on the scanning thread,
+ * for aggregations that need to bring back only a partial result per region.
+ *
+ * A sub-scan that fails is reopened after the last row it returned, so a region server failure
+ * costs one region's retry rather than the whole scan. Regions that still fail are reported
+ * and the remaining ones are scanned anyway.
+ */
+final class ParallelScan {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelScan.class);
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+
+    private final HBaseConnectionManager hBaseConnections;
+    private final TableName tableName;
+    private final Scan template;
+    private final List<Region> regions = new ArrayList<>();
+    private final Executor executor;
+    private final int parallelism;
+    private final int queueSize;
+    private final int maxRetries;
+    private final HBaseMetrics hBaseMetrics;
+
+    private Iterator<Region> pending;
+    private BlockingQueue<Object> shared;
+    private volatile boolean cancelled;
+
+    ParallelScan(HBaseConnectionManager hBaseConnections, TableName tableName, Scan template, Executor executor,
+        int parallelism, int queueSize, int maxRetries, HBaseMetrics hBaseMetrics) {
+        this.hBaseConnections = hBaseConnections;
+        this.tableName = tableName;
+        this.template = template;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.queueSize = queueSize;
+        this.maxRetries = maxRetries;
+        this.hBaseMetrics = hBaseMetrics;
+    }
+
+    /**
+     * Add key range to scan, ranges have to be added in key order and must not overlap.
+     * Empty keys stand for the beginning and the end of the table.
+     */
+    void addRange(byte[] startKey, byte[] endKey) {
+        regions.add(new Region(startKey, endKey));
+    }
+
+    List<RegionScanProgress> run(boolean ordered, RowHandler handler) throws IOException {
+        pending = regions.iterator();
+        if (ordered) {
+            regions.forEach(region -> region.queue = new ArrayBlockingQueue<>(queueSize));
+        } else {
+            shared = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                submitNext();
+            }
+            if (ordered) {
+                for (Region region : regions) {
+                    drain(region.queue, 1, handler);
+                }
+            } else {
+                drain(shared, regions.size(), handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parallel scan interrupted");
+        } finally {
+            cancelled = true;
+        }
+
+        List<RegionScanProgress> progress = new ArrayList<>(regions.size());
+        regions.forEach(region -> progress.add(region.progress()));
+        return progress;
+    }
+
+    /**
+     * Scan the regions in no particular order, passing rows of each region to a handler created
+     * for it by given factory. Handlers are called from the scanning threads, one thread per handler.
+     */
+    List<RegionScanProgress> runLocal(Supplier<? extends RowHandler> handlers) throws IOException {
+        regions.forEach(region -> region.handler = handlers.get());
+        return run(false, r -> {
+            throw new IllegalStateException("Rows are handled by region handlers");
+        });
+    }
+
+    private void drain(BlockingQueue<Object> queue, int regionCount, RowHandler handler)
+        throws IOException, InterruptedException {
+        int finished = 0;
+        while (finished < regionCount) {
+            Object item = queue.take();
+            if (item instanceof Region) {
+                finished++;
+            } else {
+                handler.handle((Result) item);
+            }
+        }
+    }
+
+    private void submitNext() {
+        Region region;
+        synchronized (this) {
+            if (cancelled || !pending.hasNext()) {
+                return;
+            }
+            region = pending.next();
+        }
+        try {
+            executor.execute(() -> scan(region));
+        } catch (RejectedExecutionException e) {
+            region.fail(e);
+            finish(region);
+        }
+    }
+
+    private void scan(Region region) {
+        int attempt = 0;
+        try {
+            while (region.state == State.NOT_STARTED) {
+                try (Lease lease = hBaseConnections.lease();
+                    Table table = lease.getConnection().getTable(tableName);
+                    ResultScanner rs = table.getScanner(subScan(region))) {
+                    for (Result r = rs.next(); r != null; r = rs.next()) {
+                        if (region.lastRow != null && Bytes.equals(region.lastRow, r.getRow())) {
+                            continue;
+                        }
+                        hBaseMetrics.read(r);
+                        if (region.handler != null) {
+                            region.handler.handle(r);
+                        } else if (!offer(queueOf(region), r)) {
+                            region.state = State.CANCELLED;
+                            return;
+                        }
+                        region.lastRow = r.getRow();
+                        region.rows++;
+                    }
+                    region.state = State.COMPLETED;
+                } catch (IOException | LoginException e) {
+                    if (cancelled || ++attempt > maxRetries) {
+                        region.fail(e);
+                    } else {
+                        LOG.warn("Scan of region starting at {} failed, retrying after row {}.",
+                            Bytes.toStringBinary(region.startKey), region.lastRow == null ? "-" : Bytes.toStringBinary(region.lastRow), e);
+                        region.retries++;
+                        hBaseMetrics.regionScanRetry();
+                        Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            region.state = State.CANCELLED;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            region.fail(e);
+        } finally {
+            finish(region);
+        }
+    }
+
+    private Scan subScan(Region region) throws IOException {
+        Scan scan = new Scan(template);
+        scan.setStartRow(region.lastRow != null ? region.lastRow : region.startKey);
+        scan.setStopRow(region.endKey);
+        return scan;
+    }
+
+    private void finish(Region region) {
+        try {
+            offer(queueOf(region), region);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        submitNext();
+    }
+
+    private BlockingQueue<Object> queueOf(Region region) {
+        return region.queue != null ? region.queue : shared;
+    }
+
+    /**
+     * @return false when the scan has been cancelled and nobody reads the queue anymore
+     */
+    private boolean offer(BlockingQueue<Object> queue, Object item) throws InterruptedException {
+        while (!queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Region {
+        private final byte[] startKey;
+        private final byte[] endKey;
+        private BlockingQueue<Object> queue;
+        private RowHandler handler;
+
+        // written by the scanning thread only, read after the region is finished
+        private volatile State state = State.NOT_STARTED;
+        private volatile long rows;
+        private volatile int retries;
+        private volatile byte[] lastRow;
+        private volatile String error;
+
+        private Region(byte[] startKey, byte[] endKey) {
+            this.startKey = startKey;
+            this.endKey = endKey;
+        }
+
+        private void fail(Exception e) {
+            LOG.error("Scan of region starting at {} failed.", Bytes.toStringBinary(startKey), e);
+            error = e.toString();
+            state = State.FAILED;
+        }
+
+        private RegionScanProgress progress() {
+            return new RegionScanProgress(Bytes.toString(startKey), Bytes.toString(endKey), state, rows, retries,
+                lastRow == null ? null : Bytes.toString(lastRow), error);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of single rows, enabled per table.
+ *
+ * Rows are kept as raw cells packed into one byte array, so a cached row costs a single object
+ * on the heap, its size is known exactly and it can be converted with any value encoding.
+ * Rows that don't exist are cached as well.
+ */
+@Component
+public class RowCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Value("${cache.rows.tables}")
+    private String[] tables;
+
+    @Value("${cache.rows.maxBytes}")
+    private long maxBytes;
+
+    @Value("${cache.rows.ttlSeconds}")
+    private long ttlSeconds;
+
+    private Set<String> cachedTables;
+    private Cache<Key, byte[]> cache;
+
+    /**
+     * Bumped by every invalidation, so a read that started before a write cannot put the old
+     * version of the row back into the cache.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @PostConstruct
+    public void init() {
+        cachedTables = Arrays.stream(tables)
+            .map(String::trim)
+            .filter(t -> !t.isEmpty())
+            .map(t -> "*".equals(t) ? t : normalize(t))
+            .collect(Collectors.toSet());
+
+        cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key k, byte[] v) -> v.length + k.rowKey.length() * 2 + k.table.length() * 2)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+
+        metrics.register("cache.rows.hits", (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register("cache.rows.misses", (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register("cache.rows.evictions", (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register("cache.rows.entries", (Gauge<Long>) () -> cache.estimatedSize());
+    }
+
+    public boolean isEnabled(String table) {
+        return !cachedTables.isEmpty() && (cachedTables.contains("*") || cachedTables.contains(normalize(table)));
+    }
+
+    /**
+     * @return cached row (empty when the row doesn't exist) or null when the row isn't cached
+     */
+    public Result get(String table, String rowKey) {
+        byte[] packed = cache.getIfPresent(new Key(normalize(table), rowKey));
+        return packed == null ? null : unpack(packed);
+    }
+
+    /**
+     * Generation to pass to {@link #put(String, String, Result, long)}, taken before the row is read.
+     */
+    public long generation(String table, String rowKey) {
+        return generations.get(stripe(normalize(table), rowKey));
+    }
+
+    public void put(String table, String rowKey, Result r, long generation) {
+        String normalized = normalize(table);
+        Key key = new Key(normalized, rowKey);
+        cache.put(key, pack(r));
+        // the row has been written in the meantime, what we read may be outdated
+        if (generations.get(stripe(normalized, rowKey)) != generation) {
+            cache.invalidate(key);
+        }
+    }
+
+    public void invalidate(String table, String rowKey) {
+        if (rowKey != null && isEnabled(table)) {
+            String normalized = normalize(table);
+            generations.incrementAndGet(stripe(normalized, rowKey));
+            cache.invalidate(new Key(normalized, rowKey));
+        }
+    }
+
+    public void invalidate(String table, Collection<String> rowKeys) {
+        rowKeys.forEach(rowKey -> invalidate(table, rowKey));
+    }
+
+    /**
+     * Drop all cached rows of given table, for writes that don't go through this service
+     * row by row (e.g. bulk loads).
+     */
+    public void invalidateTable(String table) {
+        if (isEnabled(table)) {
+            String normalized = normalize(table);
+            for (int i = 0; i < GENERATION_STRIPES; i++) {
+                generations.incrementAndGet(i);
+            }
+            cache.asMap().keySet().removeIf(key -> key.table.equals(normalized));
+        }
+    }
+
+    private static String normalize(String table) {
+        return TableName.valueOf(table).getNameAsString();
+    }
+
+    private static int stripe(String table, String rowKey) {
+        return (Objects.hash(table, rowKey) & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private static byte[] pack(Result r) {
+        Cell[] cells = r.rawCells();
+        if (cells == null) {
+            return new byte[0];
+        }
+
+        int size = 0;
+        for (Cell cell : cells) {
+            size += Bytes.SIZEOF_INT + KeyValueUtil.length(cell);
+        }
+        byte[] packed = new byte[size];
+        int offset = 0;
+        for (Cell cell : cells) {
+            offset = Bytes.putInt(packed, offset, KeyValueUtil.length(cell));
+            offset = KeyValueUtil.appendToByteArray(cell, packed, offset);
+        }
+        return packed;
+    }
+
+    private static Result unpack(byte[] packed) {
+        List<Cell> cells = new ArrayList<>();
+        int offset = 0;
+        while (offset < packed.length) {
+            int length = Bytes.toInt(packed, offset);
+            offset += Bytes.SIZEOF_INT;
+            cells.add(new KeyValue(packed, offset, length));
+            offset += length;
+        }
+        return Result.create(cells);
+    }
+
+    private static final class Key {
+        private final String table;
+        private final String rowKey;
+
+        private Key(String table, String rowKey) {
+            this.table = table;
+            this.rowKey = rowKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return table.equals(key.table) && rowKey.equals(key.rowKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(table, rowKey);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.stereotype.Component;
+import org.trustedanalytics.examples.hbase.model.ValueEncoding;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link Result} in the same JSON shape as {@link org.trustedanalytics.examples.hbase.model.RowValue},
+ * copying row keys, families, qualifiers and values straight from the cells' backing arrays.
+ * Unlike {@link ConversionsService#constructRowValue(Result)} it builds no intermediate maps,
+ * strings or model objects.
+ */
+@Component
+public class RowJsonWriter {
+
+    private static final SerializableString ROW_KEY = new SerializedString("rowKey");
+    private static final SerializableString COLUMN_FAMILIES = new SerializedString("columnFamilies");
+    private static final SerializableString FAMILY_NAME = new SerializedString("familyName");
+    private static final SerializableString COLUMN_VALUES = new SerializedString("columnValues");
+    private static final SerializableString COLUMN = new SerializedString("column");
+    private static final SerializableString VALUE = new SerializedString("value");
+    private static final SerializableString ENCODING = new SerializedString("encoding");
+    private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+
+    public void write(JsonGenerator generator, Result r) throws IOException {
+        write(generator, r, ValueEncoding.UTF8, false);
+    }
+
+    /**
+     * @param versions whether to write all versions in the result with their timestamps,
+     *                 rather than the latest version of each column only
+     */
+    public void write(JsonGenerator generator, Result r, ValueEncoding encoding, boolean versions) throws IOException {
+        if (r == null || r.isEmpty()) {
+            generator.writeNull();
+            return;
+        }
+
+        Cell[] cells = r.rawCells();
+        Cell first = cells[0];
+
+        generator.writeStartObject();
+        generator.writeFieldName(ROW_KEY);
+        writeString(generator, first.getRowArray(), first.getRowOffset(), first.getRowLength());
+        generator.writeFieldName(COLUMN_FAMILIES);
+        generator.writeStartArray();
+
+        Cell previous = null;
+        for (Cell cell : cells) {
+            boolean newFamily = previous == null || !CellUtil.matchingFamily(previous, cell);
+            if (!versions && !newFamily && CellUtil.matchingQualifier(previous, cell)) {
+                // older version of the same column
+                continue;
+            }
+            if (newFamily) {
+                if (previous != null) {
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                generator.writeStartObject();
+                generator.writeFieldName(FAMILY_NAME);
+                writeString(generator, cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+                generator.writeFieldName(COLUMN_VALUES);
+                generator.writeStartArray();
+            }
+
+            generator.writeStartObject();
+            generator.writeFieldName(COLUMN);
+            writeString(generator, cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+            generator.writeFieldName(VALUE);
+            if (encoding == ValueEncoding.UTF8) {
+                writeString(generator, cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            } else {
+                generator.writeString(encoding.encode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+                generator.writeFieldName(ENCODING);
+                generator.writeString(encoding.name());
+            }
+            if (versions) {
+                generator.writeFieldName(TIMESTAMP);
+                generator.writeNumber(cell.getTimestamp());
+            }
+            generator.writeEndObject();
+
+            previous = cell;
+        }
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * ASCII bytes are already valid UTF-8 and are passed to the generator as they are. Anything
+     * else is decoded first, so malformed sequences are replaced rather than written out.
+     */
+    private static void writeString(JsonGenerator generator, byte[] bytes, int offset, int length) throws IOException {
+        if (isAscii(bytes, offset, length)) {
+            generator.writeUTF8String(bytes, offset, length);
+        } else {
+            generator.writeString(Bytes.toString(bytes, offset, length));
+        }
+    }
+
+    private static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
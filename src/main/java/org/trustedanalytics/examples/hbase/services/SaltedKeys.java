@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * Row key layout of salted tables. Natural row keys, the ones clients use, are stored with a
+ * one byte prefix - the salt bucket, a hash of the key modulo the number of buckets - so that
+ * consecutive keys (timestamps, sequence numbers) are spread over as many regions as there are
+ * buckets instead of all landing in the last one. The number of buckets is kept in the table
+ * descriptor and cannot change once the table has data.
+ *
+ * Point reads compute the bucket and go straight to it; scans read every bucket and merge
+ * the results, see {@link SaltedScanner}.
+ */
+public final class SaltedKeys {
+
+    /**
+     * Table descriptor value holding the number of buckets.
+     */
+    public static final String BUCKETS = "SALT_BUCKETS";
+
+    public static final int MAX_BUCKETS = 256;
+
+    static final SaltedKeys NONE = new SaltedKeys(0);
+
+    private final int buckets;
+
+    private SaltedKeys(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public static SaltedKeys of(int buckets) {
+        if (buckets < 0 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Salt buckets have to be between 0 and " + MAX_BUCKETS);
+        }
+        return buckets < 2 ? NONE : new SaltedKeys(buckets);
+    }
+
+    public static SaltedKeys of(HTableDescriptor table) {
+        String buckets = table.getValue(BUCKETS);
+        return buckets == null ? NONE : of(Integer.parseInt(buckets));
+    }
+
+    public boolean isSalted() {
+        return buckets > 0;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Stable across versions, as it decides where existing rows are stored.
+     */
+    public int bucket(byte[] naturalKey) {
+        return Math.floorMod(Arrays.hashCode(naturalKey), buckets);
+    }
+
+    public byte[] encode(String naturalKey) {
+        return encode(Bytes.toBytes(naturalKey));
+    }
+
+    public byte[] encode(byte[] naturalKey) {
+        return isSalted() ? encode(bucket(naturalKey), naturalKey) : naturalKey;
+    }
+
+    /**
+     * Given key placed in given bucket, for scan boundaries.
+     */
+    public byte[] encode(int bucket, byte[] naturalKey) {
+        byte[] stored = new byte[naturalKey.length + 1];
+        stored[0] = (byte) bucket;
+        System.arraycopy(naturalKey, 0, stored, 1, naturalKey.length);
+        return stored;
+    }
+
+    public byte[] decode(byte[] storedKey) {
+        return isSalted() ? Arrays.copyOfRange(storedKey, 1, storedKey.length) : storedKey;
+    }
+
+    /**
+     * Same cells with the natural row key.
+     */
+    public Result decode(Result r) {
+        if (!isSalted() || r == null || r.isEmpty()) {
+            return r;
+        }
+        byte[] row = decode(r.getRow());
+        Cell[] cells = r.rawCells();
+        Cell[] decoded = new Cell[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            Cell c = cells[i];
+            decoded[i] = new KeyValue(row, 0, row.length,
+                c.getFamilyArray(), c.getFamilyOffset(), c.getFamilyLength(),
+                c.getQualifierArray(), c.getQualifierOffset(), c.getQualifierLength(),
+                c.getTimestamp(), KeyValue.Type.codeToType(c.getTypeByte()),
+                c.getValueArray(), c.getValueOffset(), c.getValueLength());
+        }
+        return Result.create(decoded, r.getExists(), r.isStale());
+    }
+
+    /**
+     * First stored key of given bucket.
+     */
+    public byte[] lowerBound(int bucket) {
+        return new byte[] {(byte) bucket};
+    }
+
+    /**
+     * Stored key just after given bucket, the end of the table for the last possible bucket.
+     */
+    public byte[] upperBound(int bucket) {
+        return bucket == MAX_BUCKETS - 1 ? HConstants.EMPTY_END_ROW : new byte[] {(byte) (bucket + 1)};
+    }
+
+    /**
+     * Region boundaries putting each bucket in its own region.
+     */
+    public byte[][] splitKeys() {
+        byte[][] splits = new byte[buckets - 1][];
+        for (int bucket = 1; bucket < buckets; bucket++) {
+            splits[bucket - 1] = lowerBound(bucket);
+        }
+        return splits;
+    }
+
+    @Override
+    public String toString() {
+        return "SaltedKeys{buckets=" + buckets + '}';
+    }
+}
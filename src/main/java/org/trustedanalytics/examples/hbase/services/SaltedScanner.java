@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Scans all buckets of a salted table and merges their rows back into natural key order. Each
+ * bucket is sorted by natural key, so it is a k-way merge holding one row per bucket. Rows are
+ * returned with natural keys.
+ */
+class SaltedScanner extends AbstractClientScanner {
+
+    private final SaltedKeys keys;
+    private final List<ResultScanner> scanners;
+    private final PriorityQueue<Head> heads;
+
+    /**
+     * @param scans one per bucket
+     */
+    SaltedScanner(Table table, List<Scan> scans, boolean reversed, SaltedKeys keys) throws IOException {
+        this.keys = keys;
+        this.scanners = new ArrayList<>(scans.size());
+        Comparator<Head> order = (a, b) -> Bytes.compareTo(a.row.getRow(), b.row.getRow());
+        this.heads = new PriorityQueue<>(scans.size(), reversed ? order.reversed() : order);
+
+        try {
+            for (Scan scan : scans) {
+                ResultScanner scanner = table.getScanner(scan);
+                scanners.add(scanner);
+                advance(scanner);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Result next() throws IOException {
+        Head head = heads.poll();
+        if (head == null) {
+            return null;
+        }
+        advance(head.scanner);
+        return head.row;
+    }
+
+    @Override
+    public void close() {
+        scanners.forEach(ResultScanner::close);
+    }
+
+    private void advance(ResultScanner scanner) throws IOException {
+        Result r = scanner.next();
+        if (r != null) {
+            heads.add(new Head(keys.decode(r), scanner));
+        }
+    }
+
+    private static final class Head {
+        private final Result row;
+        private final ResultScanner scanner;
+
+        private Head(Result row, ResultScanner scanner) {
+            this.row = row;
+            this.scanner = scanner;
+        }
+    }
+}
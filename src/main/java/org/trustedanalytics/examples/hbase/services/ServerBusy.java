@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.RegionTooBusyException;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.ipc.RemoteException;
+
+/**
+ * Recognizes failures caused by an overloaded region server (memstore blocked during
+ * compactions, full call queue), which are worth retrying later with fewer concurrent writes.
+ */
+public final class ServerBusy {
+
+    private static final String CALL_QUEUE_TOO_BIG = "CallQueueTooBigException";
+
+    private ServerBusy() {
+    }
+
+    /**
+     * Whether given failure means a region server is overloaded, looking through the causes
+     * and the per-row failures of batches.
+     */
+    public static boolean isBusy(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof RegionTooBusyException || t.getClass().getSimpleName().equals(CALL_QUEUE_TOO_BIG)) {
+                return true;
+            }
+            if (t instanceof RemoteException && ((RemoteException) t).getClassName().endsWith(CALL_QUEUE_TOO_BIG)) {
+                return true;
+            }
+            if (t instanceof RetriesExhaustedWithDetailsException) {
+                for (Throwable cause : ((RetriesExhaustedWithDetailsException) t).getCauses()) {
+                    if (isBusy(cause)) {
+                        return true;
+                    }
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
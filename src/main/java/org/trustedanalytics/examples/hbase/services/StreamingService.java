@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.hadoop.hbase.client.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.trustedanalytics.examples.hbase.configs.WebConfig;
+import org.trustedanalytics.examples.hbase.model.RegionScanProgress;
+import org.trustedanalytics.examples.hbase.model.RowValue;
+import org.trustedanalytics.examples.hbase.model.ScanQuery;
+
+import javax.annotation.PostConstruct;
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes scan results straight to the response as they come from region servers,
+ * instead of collecting them on the heap first.
+ */
+@Service
+public class StreamingService {
+
+    @Autowired
+    HBaseService hbaseService;
+
+    @Autowired
+    ConversionsService conversionsService;
+
+    @Autowired
+    RowJsonWriter rowJsonWriter;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${results.directSerialization}")
+    private boolean directSerialization;
+
+    private final SmileFactory smileFactory = new SmileFactory();
+
+    private ObjectWriter rowWriter;
+
+    @PostConstruct
+    public void init() {
+        rowWriter = objectMapper.writerFor(RowValue.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes {"rows": [...], "continuation": "..."}. Nothing is flushed before the first rows
+     * arrive, so errors raised when opening the scanner can still be reported with a proper status.
+     */
+    public void writeScan(String name, ScanQuery query, MediaType contentType, OutputStream out)
+        throws IOException, LoginException {
+        JsonGenerator generator = createGenerator(contentType, out);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("rows");
+
+        String continuation = hbaseService.scan(name, query, r -> writeRow(generator, r, query));
+
+        generator.writeEndArray();
+        generator.writeStringField("continuation", continuation);
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * Writes {"rows": [...], "regions": [...]}, where regions describe the outcome of each
+     * region's sub-scan.
+     */
+    public void writeRegionScan(String name, ScanQuery query, boolean ordered, Integer parallelism,
+        MediaType contentType, OutputStream out) throws IOException, LoginException {
+        JsonGenerator generator = createGenerator(contentType, out);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("rows");
+
+        List<RegionScanProgress> regions = hbaseService.scanRegions(name, query, ordered, parallelism,
+            r -> writeRow(generator, r, query));
+
+        generator.writeEndArray();
+        generator.writeFieldName("regions");
+        objectMapper.writeValue(generator, regions);
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * Writes every row in the query's range as one line of JSON. Rows are written as they are
+     * read, so memory use doesn't depend on the size of the export, and a slow client slows
+     * down the scan instead of making rows pile up.
+     */
+    public void exportNdjson(String name, ScanQuery query, OutputStream out) throws IOException, LoginException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // rows are separated by the newline alone, not by the default space as well
+        generator.setRootValueSeparator(null);
+        hbaseService.scanAll(name, query, r -> {
+            rowJsonWriter.write(generator, r, query.getEncoding(), query.isVersioned());
+            generator.writeRaw('\n');
+        });
+        generator.close();
+    }
+
+    /**
+     * Throws IllegalArgumentException when the query cannot be exported as CSV, so that it can be
+     * rejected before the response is started.
+     */
+    public void checkCsvExport(ScanQuery query) {
+        if (query.isVersioned() && CsvRowWriter.isColumnLayout(query.getColumns())) {
+            throw new IllegalArgumentException("CSV with family:qualifier columns holds only the latest versions, "
+                + "leave out the columns to export every version");
+        }
+    }
+
+    /**
+     * Writes rows in the query's range as CSV, see {@link CsvRowWriter} for the layout.
+     */
+    public void exportCsv(String name, ScanQuery query, OutputStream out) throws IOException, LoginException {
+        checkCsvExport(query);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CsvRowWriter csv = new CsvRowWriter(writer, query.getColumns(), query.getEncoding(), query.isVersioned());
+        csv.writeHeader();
+        hbaseService.scanAll(name, query, csv::write);
+        writer.flush();
+    }
+
+    private JsonGenerator createGenerator(MediaType contentType, OutputStream out) throws IOException {
+        if (WebConfig.APPLICATION_SMILE.includes(contentType)) {
+            return smileFactory.createGenerator(out);
+        }
+        return objectMapper.getFactory().createGenerator(out);
+    }
+
+    private void writeRow(JsonGenerator generator, Result r, ScanQuery query) throws IOException {
+        if (directSerialization) {
+            rowJsonWriter.write(generator, r, query.getEncoding(), query.isVersioned());
+        } else {
+            rowWriter.writeValue(generator, conversionsService.constructRowValue(r, query.getEncoding(), query.isVersioned()));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager;
+import org.trustedanalytics.examples.hbase.configs.HBaseConnectionManager.Lease;
+import org.trustedanalytics.examples.hbase.model.TableDescription;
+
+import javax.annotation.PostConstruct;
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Short lived cache of table descriptions, so polling clients don't hit the HMaster on every call.
+ *
+ * Concurrent requests for the same entry wait for a single admin call. With a refresh interval
+ * configured, entries older than the interval are reloaded in the background while readers
+ * keep getting the previous value.
+ *
+ * Key layouts and indexes, needed by every row operation, are kept apart and never expire: they
+ * are reloaded in the background (every refresh interval, or TTL when not set), so row operations
+ * wait for the HMaster only the first time they touch a table. Changes made through this service
+ * invalidate them right away.
+ */
+@Component
+public class TableMetadataCache {
+
+    private static final String ALL_TABLES = "";
+
+    @Autowired
+    HBaseConnectionManager hBaseConnections;
+
+    @Autowired
+    ConversionsService conversionsService;
+
+    @Autowired
+    MetricRegistry metrics;
+
+    @Value("${cache.tables.ttlSeconds}")
+    private long ttlSeconds;
+
+    @Value("${cache.tables.refreshSeconds}")
+    private long refreshSeconds;
+
+    private LoadingCache<String, List<TableDescription>> tableLists;
+    private LoadingCache<String, TableDescription> tables;
+    private LoadingCache<String, Layout> layouts;
+
+    @PostConstruct
+    public void init() {
+        tableLists = builder().build(key -> loadTables());
+        tables = builder().build(this::loadTable);
+        long layoutRefreshSeconds = refreshSeconds > 0 ? refreshSeconds : ttlSeconds;
+        layouts = (layoutRefreshSeconds > 0
+            ? Caffeine.newBuilder().refreshAfterWrite(layoutRefreshSeconds, TimeUnit.SECONDS).recordStats()
+            : builder()).build(name -> new Layout(loadTable(name)));
+
+        metrics.register("cache.tables.hits",
+            (Gauge<Long>) () -> tableLists.stats().hitCount() + tables.stats().hitCount() + layouts.stats().hitCount());
+        metrics.register("cache.tables.misses",
+            (Gauge<Long>) () -> tableLists.stats().missCount() + tables.stats().missCount() + layouts.stats().missCount());
+    }
+
+    public List<TableDescription> listTables() throws IOException, LoginException {
+        try {
+            return tableLists.get(ALL_TABLES);
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    public TableDescription getTableInfo(String name) throws IOException, LoginException {
+        try {
+            return tables.get(normalize(name));
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Key layout of given table.
+     */
+    public SaltedKeys saltedKeys(String name) throws IOException, LoginException {
+        return getLayout(name).keys;
+    }
+
+    /**
+     * Secondary indexes of given table.
+     */
+    public IndexedColumns indexedColumns(String name) throws IOException, LoginException {
+        return getLayout(name).indexes;
+    }
+
+    public void invalidate(String name) {
+        tableLists.invalidateAll();
+        tables.invalidate(normalize(name));
+        layouts.invalidate(normalize(name));
+    }
+
+    private Layout getLayout(String name) throws IOException, LoginException {
+        try {
+            return layouts.get(normalize(name));
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private Caffeine<Object, Object> builder() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .recordStats();
+        if (refreshSeconds > 0) {
+            builder.refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS);
+        }
+        return builder;
+    }
+
+    private List<TableDescription> loadTables() throws IOException, LoginException {
+        try (Lease lease = hBaseConnections.lease();
+            Admin admin = lease.getConnection().getAdmin()) {
+            HTableDescriptor[] descriptors = admin.listTables();
+            return Arrays.stream(descriptors)
+                .map(conversionsService::constructTableDescription)
+                .collect(Collectors.toList());
+        }
+    }
+
+    private TableDescription loadTable(String name) throws IOException, LoginException {
+        try (Lease lease = hBaseConnections.lease();
+            Admin admin = lease.getConnection().getAdmin()) {
+            return conversionsService.constructTableDescription(admin.getTableDescriptor(TableName.valueOf(name)));
+        }
+    }
+
+    private static String normalize(String name) {
+        return TableName.valueOf(name).getNameAsString();
+    }
+
+    private static IOException unwrap(CompletionException e) throws LoginException {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof LoginException) {
+            throw (LoginException) cause;
+        }
+        throw e;
+    }
+
+    private static final class Layout {
+        private final SaltedKeys keys;
+        private final IndexedColumns indexes;
+
+        private Layout(TableDescription table) {
+            this.keys = table.getSaltBuckets() == null ? SaltedKeys.NONE : SaltedKeys.of(table.getSaltBuckets());
+            this.indexes = IndexedColumns.of(table.getIndexes());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.examples.hbase.services;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Scan;
+import org.trustedanalytics.examples.hbase.model.VersionQuery;
+
+import java.io.IOException;
+
+/**
+ * Restricts reads to given versions and times of cells. All selected versions come back
+ * in a single RPC.
+ */
+final class VersionSelection {
+
+    private VersionSelection() {
+    }
+
+    static void applyTo(Get get, VersionQuery query) throws IOException {
+        if (query.getMaxVersions() != null) {
+            get.setMaxVersions(maxVersions(query));
+        }
+        if (query.getTimestamp() != null) {
+            get.setTimeStamp(timestamp(query));
+        } else if (query.getMinTimestamp() != null || query.getMaxTimestamp() != null) {
+            get.setTimeRange(min(query), max(query));
+        }
+    }
+
+    static void applyTo(Scan scan, VersionQuery query) throws IOException {
+        if (query.getMaxVersions() != null) {
+            scan.setMaxVersions(maxVersions(query));
+        }
+        if (query.getTimestamp() != null) {
+            scan.setTimeStamp(timestamp(query));
+        } else if (query.getMinTimestamp() != null || query.getMaxTimestamp() != null) {
+            scan.setTimeRange(min(query), max(query));
+        }
+    }
+
+    private static int maxVersions(VersionQuery query) {
+        if (query.getMaxVersions() < 1) {
+            throw new IllegalArgumentException("Max versions has to be at least 1");
+        }
+        return query.getMaxVersions();
+    }
+
+    private static long timestamp(VersionQuery query) {
+        if (query.getMinTimestamp() != null || query.getMaxTimestamp() != null) {
+            throw new IllegalArgumentException("Either a timestamp or a time range can be given");
+        }
+        if (query.getTimestamp() < 0) {
+            throw new IllegalArgumentException("Invalid timestamp");
+        }
+        return query.getTimestamp();
+    }
+
+    private static long min(VersionQuery query) {
+        long min = query.getMinTimestamp() != null ? query.getMinTimestamp() : 0;
+        if (min < 0 || min > max(query)) {
+            throw new IllegalArgumentException("Invalid time range");
+        }
+        return min;
+    }
+
+    private static long max(VersionQuery query) {
+        return query.getMaxTimestamp() != null ? query.getMaxTimestamp() : Long.MAX_VALUE;
+    }
+}